@@ -0,0 +1,94 @@
+//! Throughput of `DeviceTracker` with thousands of devices reporting concurrently.
+//!
+//! Run with `cargo bench -p backend --bench device_tracker`.
+
+use backend::device_manager::DeviceTracker;
+use share::status::Status;
+use std::sync::atomic::{AtomicBool, AtomicU64, Ordering};
+use std::thread;
+use std::time::{Duration, Instant};
+
+const DEVICE_COUNTS: [usize; 3] = [1_000, 4_000, 16_000];
+const ROUNDS: usize = 50;
+
+fn main() {
+    let writers = thread::available_parallelism()
+        .map(|count| count.get())
+        .unwrap_or(4);
+
+    for device_count in DEVICE_COUNTS {
+        run(device_count, writers);
+    }
+}
+
+fn run(device_count: usize, writers: usize) {
+    let tracker = DeviceTracker::with_timeout_ms(60_000);
+    let statuses: Vec<Status> = (0..device_count).map(make_status).collect();
+    let reading = AtomicBool::new(true);
+    let reads = AtomicU64::new(0);
+
+    let started = Instant::now();
+
+    thread::scope(|scope| {
+        scope.spawn(|| {
+            while reading.load(Ordering::Relaxed) {
+                std::hint::black_box(tracker.get_active_statuses());
+                reads.fetch_add(1, Ordering::Relaxed);
+            }
+        });
+
+        let handles: Vec<_> = statuses
+            .chunks(device_count.div_ceil(writers))
+            .map(|chunk| {
+                let tracker = &tracker;
+                scope.spawn(move || {
+                    for _ in 0..ROUNDS {
+                        for status in chunk {
+                            tracker.record(status.clone());
+                        }
+                    }
+                })
+            })
+            .collect();
+
+        for handle in handles {
+            handle.join().unwrap();
+        }
+
+        reading.store(false, Ordering::Relaxed);
+    });
+
+    let elapsed = started.elapsed();
+    let updates = (device_count * ROUNDS) as f64;
+
+    println!(
+        "{:>6} devices, {:>2} writers: {:>10.0} updates/s, {:>6} full reads in {:?} ({:?}/read)",
+        device_count,
+        writers,
+        updates / elapsed.as_secs_f64(),
+        reads.load(Ordering::Relaxed),
+        elapsed,
+        per_read(elapsed, reads.load(Ordering::Relaxed)),
+    );
+
+    assert_eq!(tracker.get_active_statuses().len(), device_count);
+}
+
+fn make_status(index: usize) -> Status {
+    let mut status = Status::with_os(
+        format!("com.example.app{}", index % 64),
+        format!("App {}", index % 64),
+        "android".to_string(),
+    );
+    status.device_id = format!("device-{:08x}", index);
+    status.device_name = format!("Phone {}", index);
+    status
+}
+
+fn per_read(elapsed: Duration, reads: u64) -> Duration {
+    if reads == 0 {
+        Duration::ZERO
+    } else {
+        elapsed / reads as u32
+    }
+}
@@ -1,64 +1,323 @@
+use axum::body::Bytes;
+use dashmap::DashMap;
+use dashmap::mapref::entry::Entry;
 use log::info;
+use serde::{Deserialize, Serialize};
 use share::config::settings_handler::SERVER_SETTINGS;
 use share::filter::filter_manager::filter_status;
 use share::status::Status;
 use std::collections::HashMap;
-use std::sync::Arc;
+use std::sync::atomic::{AtomicU64, Ordering};
+use std::sync::{Arc, PoisonError, RwLock};
 use std::time::SystemTime;
-use tokio::sync::Mutex;
+use tokio::sync::broadcast;
+
+const CHANGE_CHANNEL_CAPACITY: usize = 16;
 
 #[derive(Clone)]
 pub struct DeviceStatus {
     pub status: Status,
     pub last_update: u128,
+    /// Arrived in a batch after the live timeout had already passed. Such a status
+    /// is listed as "last seen at `last_update`" and kept for the last-seen period.
+    pub delayed: bool,
+}
+
+/// One entry of the serialized device list. `last_seen` (milliseconds since the
+/// Unix epoch) is only present for delayed statuses.
+#[derive(Serialize)]
+struct ListedStatus<'a> {
+    #[serde(flatten)]
+    status: &'a Status,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    last_seen: Option<u64>,
 }
 
+/// A status the client captured at `captured_at` but could only deliver later.
+#[derive(Deserialize, Clone)]
+pub struct CapturedStatus {
+    pub captured_at: u64,
+    pub status: Status,
+}
+
+/// Statuses queued by a client while it was offline or batching for battery.
+///
+/// Both timestamps come from the client's clock and only their difference is
+/// used, so a skewed client clock does not shift the replayed statuses.
+#[derive(Deserialize, Clone)]
+pub struct StatusBatch {
+    pub sent_at: u64,
+    pub statuses: Vec<CapturedStatus>,
+}
+
+/// Serialized list of active devices at a given version.
+pub struct StatusSnapshot {
+    pub version: u64,
+    pub etag: String,
+    pub body: Bytes,
+}
+
+/// Latest status of every reporting device, keyed by [`Status::device_key`].
+///
+/// The map is sharded, so devices reporting at the same time only contend
+/// when they hash into the same shard instead of on one global lock.
+///
+/// The version is bumped only when the set of active statuses actually changes
+/// (a new device, a different status, or a device timing out). Readers share
+/// one serialized snapshot per version and subscribers are told about each bump.
+///
+/// Live statuses expire after `timeout_ms`. Delayed ones, which were already older
+/// than that when they arrived, are kept for `last_seen_ms` instead.
 pub struct DeviceTracker {
-    statuses: Arc<Mutex<HashMap<String, DeviceStatus>>>,
+    statuses: DashMap<String, DeviceStatus>,
     timeout_ms: u128,
+    last_seen_ms: u128,
+    epoch: u128,
+    version: AtomicU64,
+    snapshot: RwLock<Option<Arc<StatusSnapshot>>>,
+    changes: broadcast::Sender<u64>,
 }
 
 impl DeviceTracker {
     pub fn new() -> Arc<Self> {
+        Self::with_timeouts_ms(
+            (SERVER_SETTINGS.timeout_secs * 1000) as u128,
+            (SERVER_SETTINGS.last_seen_secs * 1000) as u128,
+        )
+    }
+
+    /// A tracker that keeps no delayed statuses past the live timeout.
+    pub fn with_timeout_ms(timeout_ms: u128) -> Arc<Self> {
+        Self::with_timeouts_ms(timeout_ms, timeout_ms)
+    }
+
+    pub fn with_timeouts_ms(timeout_ms: u128, last_seen_ms: u128) -> Arc<Self> {
+        let (changes, _) = broadcast::channel(CHANGE_CHANNEL_CAPACITY);
+
         Arc::new(DeviceTracker {
-            statuses: Arc::new(Mutex::new(HashMap::new())),
-            timeout_ms: (SERVER_SETTINGS.timeout_secs * 1000) as u128,
+            statuses: DashMap::new(),
+            timeout_ms,
+            last_seen_ms: last_seen_ms.max(timeout_ms),
+            epoch: get_now_time_ms(),
+            version: AtomicU64::new(0),
+            snapshot: RwLock::new(None),
+            changes,
         })
     }
 
-    pub async fn update_status(&self, new_status: &Status) {
+    pub fn update_status(&self, new_status: &Status) {
         let status = filter_status(new_status);
-        let mut statuses = self.statuses.lock().await;
-
-        let title_clone = status.title.clone();
-        let app_name_clone = status.app_name.clone();
-        let os_name_clone = status.os_name.clone();
-        let force_status_type_clone = status.force_status_type.clone();
-
-        statuses.insert(
-            status.os_name.clone(),
-            DeviceStatus {
-                status,
-                last_update: get_now_time_ms(),
-            },
-        );
+        log_update(&status);
+        self.record(status);
+    }
 
-        info!(
-            "Updated status: title: {}, name: {}, os: {}, force type: {}.",
-            title_clone, app_name_clone, os_name_clone, force_status_type_clone
-        );
+    /// Replays a client's queued statuses, see [`DeviceTracker::record_batch`].
+    pub fn update_status_batch(&self, batch: StatusBatch) {
+        self.record_batch(batch, |status| {
+            let status = filter_status(&status);
+            log_update(&status);
+            status
+        });
+    }
+
+    /// Stores an already filtered status without touching the server settings.
+    pub fn record(&self, status: Status) {
+        self.record_at(status, get_now_time_ms());
+    }
+
+    /// Applies only the newest queued status of each device, as of the time it
+    /// was captured. Older entries were superseded before anyone could see them.
+    /// A status already past the live timeout is kept as delayed, and one past the
+    /// last-seen period is dropped. `prepare` runs only on the newest statuses.
+    fn record_batch(&self, batch: StatusBatch, prepare: impl Fn(Status) -> Status) {
+        for (status, captured_at) in self.replayable(batch) {
+            self.record_at(prepare(status), captured_at);
+        }
+    }
+
+    /// Stores a status as last seen at `seen_at`. Statuses older than the one
+    /// already stored, or already past the last-seen period, are ignored.
+    fn record_at(&self, status: Status, seen_at: u128) {
+        let now = get_now_time_ms();
+        let age = now.saturating_sub(seen_at);
+        if age > self.last_seen_ms {
+            return;
+        }
+        let delayed = age > self.timeout_ms;
+
+        let changed = match self.statuses.entry(status.device_key().to_string()) {
+            Entry::Occupied(mut entry) => {
+                let device = entry.get_mut();
+                if seen_at < device.last_update {
+                    return;
+                }
+
+                let changed = device.status != status
+                    || device.delayed != delayed
+                    || !self.is_active(device, now);
+
+                device.status = status;
+                device.last_update = seen_at;
+                device.delayed = delayed;
+                changed
+            }
+            Entry::Vacant(entry) => {
+                entry.insert(DeviceStatus {
+                    status,
+                    last_update: seen_at,
+                    delayed,
+                });
+                true
+            }
+        };
+
+        if changed {
+            self.publish_change();
+        }
+    }
+
+    /// Picks the newest status per device from a batch and maps its capture time
+    /// onto the server clock.
+    fn replayable(&self, batch: StatusBatch) -> Vec<(Status, u128)> {
+        let now = get_now_time_ms();
+        let sent_at = batch.sent_at;
+        let mut newest: HashMap<String, CapturedStatus> = HashMap::new();
+
+        // Later entries win ties, the client sends them oldest first.
+        for captured in batch.statuses {
+            let key = captured.status.device_key().to_string();
+            let is_newer = newest
+                .get(&key)
+                .is_none_or(|current| current.captured_at <= captured.captured_at);
+            if is_newer {
+                newest.insert(key, captured);
+            }
+        }
+
+        newest
+            .into_values()
+            .map(|captured| {
+                let age = sent_at.saturating_sub(captured.captured_at) as u128;
+                (captured.status, now.saturating_sub(age))
+            })
+            .collect()
+    }
+
+    /// Drops devices that stopped reporting, so they disappear from the
+    /// cached snapshot and subscribers see them go offline.
+    pub fn sweep_expired(&self) {
+        let now = get_now_time_ms();
+        let mut removed = 0usize;
+
+        self.statuses.retain(|_, device| {
+            let active = self.is_active(device, now);
+            if !active {
+                removed += 1;
+            }
+            active
+        });
+
+        if removed > 0 {
+            info!("Removed {} timed out device(s).", removed);
+            self.publish_change();
+        }
+    }
+
+    pub fn version(&self) -> u64 {
+        self.version.load(Ordering::Acquire)
+    }
+
+    /// Returns the serialized active statuses, rebuilding them only when the
+    /// version moved since the last call.
+    pub fn snapshot(&self) -> Arc<StatusSnapshot> {
+        let version = self.version();
+
+        if let Some(snapshot) = self
+            .snapshot
+            .read()
+            .unwrap_or_else(PoisonError::into_inner)
+            .as_ref()
+            .filter(|snapshot| snapshot.version == version)
+        {
+            return snapshot.clone();
+        }
+
+        let mut cached = self
+            .snapshot
+            .write()
+            .unwrap_or_else(PoisonError::into_inner);
+
+        if let Some(snapshot) = cached.as_ref().filter(|snapshot| snapshot.version >= version) {
+            return snapshot.clone();
+        }
+
+        let devices = self.active_devices();
+        let listed: Vec<ListedStatus> = devices
+            .iter()
+            .map(|device| ListedStatus {
+                status: &device.status,
+                last_seen: device.delayed.then_some(device.last_update as u64),
+            })
+            .collect();
+        let body = serde_json::to_vec(&listed).expect("Failed serialize active statuses");
+        let snapshot = Arc::new(StatusSnapshot {
+            version,
+            etag: format!("\"{:x}-{}\"", self.epoch, version),
+            body: Bytes::from(body),
+        });
+
+        *cached = Some(snapshot.clone());
+        snapshot
+    }
+
+    /// Receives the new version every time the active statuses change.
+    pub fn subscribe(&self) -> broadcast::Receiver<u64> {
+        self.changes.subscribe()
     }
 
-    pub async fn get_active_statuses(&self) -> Vec<Status> {
-        let statuses = self.statuses.lock().await;
+    pub fn get_active_statuses(&self) -> Vec<Status> {
+        self.active_devices()
+            .into_iter()
+            .map(|device| device.status)
+            .collect()
+    }
+
+    fn active_devices(&self) -> Vec<DeviceStatus> {
         let now = get_now_time_ms();
 
-        statuses
-            .values()
-            .filter(|device| now.saturating_sub(device.last_update) <= self.timeout_ms)
-            .map(|device| device.status.clone())
+        self.statuses
+            .iter()
+            .filter(|device| self.is_active(device, now))
+            .map(|device| device.value().clone())
             .collect()
     }
+
+    fn is_active(&self, device: &DeviceStatus, now: u128) -> bool {
+        let limit = if device.delayed {
+            self.last_seen_ms
+        } else {
+            self.timeout_ms
+        };
+        now.saturating_sub(device.last_update) <= limit
+    }
+
+    fn publish_change(&self) {
+        let version = self.version.fetch_add(1, Ordering::AcqRel) + 1;
+        // Sending only fails when nobody is subscribed, which is fine.
+        let _ = self.changes.send(version);
+    }
+}
+
+fn log_update(status: &Status) {
+    info!(
+        "Updated status: title: {}, name: {}, os: {}, device: {} ({}), force type: {}.",
+        status.title,
+        status.app_name,
+        status.os_name,
+        status.device_name,
+        status.device_key(),
+        status.force_status_type
+    );
 }
 
 fn get_now_time_ms() -> u128 {
@@ -67,3 +326,236 @@ fn get_now_time_ms() -> u128 {
         .unwrap()
         .as_millis()
 }
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::thread::sleep;
+    use std::time::Duration;
+
+    fn status(device_id: &str, app_name: &str) -> Status {
+        let mut status = Status::with_os(
+            "title".to_string(),
+            app_name.to_string(),
+            "android".to_string(),
+        );
+        status.device_id = device_id.to_string();
+        status
+    }
+
+    #[test]
+    fn identical_report_keeps_version() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        tracker.record(status("a", "App"));
+        let version = tracker.version();
+        tracker.record(status("a", "App"));
+
+        assert_eq!(tracker.version(), version);
+    }
+
+    #[test]
+    fn new_device_or_changed_status_bumps_version() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        tracker.record(status("a", "App"));
+        assert_eq!(tracker.version(), 1);
+
+        tracker.record(status("a", "Other"));
+        assert_eq!(tracker.version(), 2);
+
+        tracker.record(status("b", "Other"));
+        assert_eq!(tracker.version(), 3);
+        assert_eq!(tracker.get_active_statuses().len(), 2);
+    }
+
+    #[test]
+    fn devices_are_keyed_by_id_not_os() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        tracker.record(status("a", "App"));
+        tracker.record(status("b", "App"));
+
+        assert_eq!(tracker.get_active_statuses().len(), 2);
+    }
+
+    #[test]
+    fn expired_then_reported_again_bumps_version() {
+        let tracker = DeviceTracker::with_timeout_ms(1);
+
+        tracker.record(status("a", "App"));
+        let version = tracker.version();
+        sleep(Duration::from_millis(10));
+        tracker.record(status("a", "App"));
+
+        assert_eq!(tracker.version(), version + 1);
+    }
+
+    #[test]
+    fn sweep_removes_expired_devices_and_bumps_version() {
+        let tracker = DeviceTracker::with_timeout_ms(1);
+
+        tracker.record(status("a", "App"));
+        let version = tracker.version();
+        sleep(Duration::from_millis(10));
+        tracker.sweep_expired();
+
+        assert_eq!(tracker.version(), version + 1);
+        assert!(tracker.get_active_statuses().is_empty());
+    }
+
+    #[test]
+    fn sweep_without_expired_devices_keeps_version() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        tracker.record(status("a", "App"));
+        let version = tracker.version();
+        tracker.sweep_expired();
+
+        assert_eq!(tracker.version(), version);
+    }
+
+    #[test]
+    fn snapshot_is_reused_until_version_changes() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+        tracker.record(status("a", "App"));
+
+        let first = tracker.snapshot();
+        tracker.record(status("a", "App"));
+        let second = tracker.snapshot();
+        assert!(Arc::ptr_eq(&first, &second));
+
+        tracker.record(status("a", "Other"));
+        let third = tracker.snapshot();
+        assert!(!Arc::ptr_eq(&second, &third));
+        assert_ne!(second.etag, third.etag);
+
+        let statuses: Vec<Status> = serde_json::from_slice(&third.body).unwrap();
+        assert_eq!(statuses, vec![status("a", "Other")]);
+    }
+
+    fn captured(captured_at: u64, status: Status) -> CapturedStatus {
+        CapturedStatus {
+            captured_at,
+            status,
+        }
+    }
+
+    fn replay(tracker: &DeviceTracker, sent_at: u64, statuses: Vec<CapturedStatus>) {
+        tracker.record_batch(StatusBatch { sent_at, statuses }, |status| status);
+    }
+
+    #[test]
+    fn batch_applies_only_newest_status_per_device() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        replay(
+            &tracker,
+            10_000,
+            vec![
+                captured(1_000, status("a", "First")),
+                captured(2_000, status("b", "Other")),
+                captured(3_000, status("a", "Latest")),
+            ],
+        );
+
+        assert_eq!(tracker.version(), 2);
+        let mut statuses = tracker.get_active_statuses();
+        statuses.sort_by(|left, right| left.device_id.cmp(&right.device_id));
+        assert_eq!(statuses, vec![status("a", "Latest"), status("b", "Other")]);
+    }
+
+    #[test]
+    fn batch_uses_capture_time_as_last_update() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+        let before = get_now_time_ms();
+
+        replay(&tracker, 50_000, vec![captured(20_000, status("a", "App"))]);
+
+        let last_update = tracker.statuses.get("a").unwrap().last_update;
+        assert!(last_update <= get_now_time_ms() - 30_000);
+        assert!(last_update >= before - 30_000);
+    }
+
+    #[test]
+    fn batch_drops_statuses_past_the_timeout() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+
+        replay(&tracker, 100_000, vec![captured(10_000, status("a", "App"))]);
+
+        assert_eq!(tracker.version(), 0);
+        assert!(tracker.get_active_statuses().is_empty());
+    }
+
+    #[test]
+    fn batch_does_not_override_a_newer_live_status() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+        tracker.record(status("a", "Live"));
+        let version = tracker.version();
+
+        replay(&tracker, 5_000, vec![captured(1_000, status("a", "Queued"))]);
+
+        assert_eq!(tracker.version(), version);
+        assert_eq!(tracker.get_active_statuses(), vec![status("a", "Live")]);
+    }
+
+    #[test]
+    fn batch_past_the_timeout_is_kept_as_last_seen() {
+        let tracker = DeviceTracker::with_timeouts_ms(20_000, 3_600_000);
+
+        replay(&tracker, 1_000_000, vec![captured(100_000, status("a", "App"))]);
+        tracker.sweep_expired();
+
+        assert_eq!(tracker.version(), 1);
+        assert_eq!(tracker.get_active_statuses(), vec![status("a", "App")]);
+
+        let listed: Vec<serde_json::Value> = serde_json::from_slice(&tracker.snapshot().body).unwrap();
+        let last_seen = listed[0]["last_seen"].as_u64().unwrap() as u128;
+        assert!(last_seen <= get_now_time_ms() - 900_000);
+    }
+
+    #[test]
+    fn batch_past_the_last_seen_period_is_dropped() {
+        let tracker = DeviceTracker::with_timeouts_ms(20_000, 3_600_000);
+
+        replay(&tracker, 5_000_000, vec![captured(1_000, status("a", "App"))]);
+
+        assert_eq!(tracker.version(), 0);
+        assert!(tracker.get_active_statuses().is_empty());
+    }
+
+    #[test]
+    fn live_report_replaces_last_seen_status() {
+        let tracker = DeviceTracker::with_timeouts_ms(20_000, 3_600_000);
+        replay(&tracker, 1_000_000, vec![captured(100_000, status("a", "App"))]);
+
+        tracker.record(status("a", "App"));
+
+        assert_eq!(tracker.version(), 2);
+        let listed: Vec<serde_json::Value> = serde_json::from_slice(&tracker.snapshot().body).unwrap();
+        assert!(listed[0].get("last_seen").is_none());
+    }
+
+    #[test]
+    fn live_statuses_are_not_listed_with_last_seen() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+        tracker.record(status("a", "App"));
+
+        let listed: Vec<serde_json::Value> = serde_json::from_slice(&tracker.snapshot().body).unwrap();
+        assert!(listed[0].get("last_seen").is_none());
+    }
+
+    #[test]
+    fn subscribers_receive_each_new_version() {
+        let tracker = DeviceTracker::with_timeout_ms(60_000);
+        let mut changes = tracker.subscribe();
+
+        tracker.record(status("a", "App"));
+        tracker.record(status("a", "App"));
+        tracker.record(status("a", "Other"));
+
+        assert_eq!(changes.try_recv().unwrap(), 1);
+        assert_eq!(changes.try_recv().unwrap(), 2);
+        assert!(changes.try_recv().is_err());
+    }
+}
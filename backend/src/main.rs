@@ -1,15 +1,22 @@
-mod device_manager;
-
-use axum::http::StatusCode;
-use axum::response::IntoResponse;
-use axum::routing::get;
+use axum::http::{HeaderMap, StatusCode, header};
+use axum::response::sse::{Event, KeepAlive, Sse};
+use axum::response::{IntoResponse, Response};
+use axum::routing::{get, put};
 use axum::{Extension, Json, Router};
+use backend::device_manager;
 use log::info;
 use share::config::settings::ServerSettings;
 use share::config::settings_handler::SERVER_SETTINGS;
 use share::log::log_manager::setup_logging;
 use share::status::Status;
+use std::convert::Infallible;
 use std::sync::Arc;
+use std::time::Duration;
+use tokio_stream::wrappers::BroadcastStream;
+use tokio_stream::{Stream, StreamExt};
+use tower_http::decompression::RequestDecompressionLayer;
+
+const SWEEP_INTERVAL: Duration = Duration::from_secs(1);
 
 #[tokio::main]
 async fn main() {
@@ -24,9 +31,21 @@ async fn main() {
     let device_tracker = device_manager::DeviceTracker::new();
     let listener = tokio::net::TcpListener::bind(&settings.host).await.unwrap();
 
+    let sweeper = device_tracker.clone();
+    tokio::spawn(async move {
+        let mut interval = tokio::time::interval(SWEEP_INTERVAL);
+        loop {
+            interval.tick().await;
+            sweeper.sweep_expired();
+        }
+    });
+
     let router = Router::new()
         .route("/api/status", get(get_status).put(put_status))
-        .layer(Extension(device_tracker));
+        .route("/api/status/batch", put(put_status_batch))
+        .route("/api/status/stream", get(stream_status))
+        .layer(Extension(device_tracker))
+        .layer(RequestDecompressionLayer::new());
 
     info!("LiveStatus Backend listening on {}", &settings.host);
 
@@ -37,12 +56,121 @@ async fn put_status(
     Extension(tracker): Extension<Arc<device_manager::DeviceTracker>>,
     Json(new_status): Json<Status>,
 ) -> impl IntoResponse {
-    tracker.update_status(&new_status).await;
+    tracker.update_status(&new_status);
+    StatusCode::OK.into_response()
+}
+
+/// Applies statuses a client queued while it was offline or batching, keeping
+/// only the newest one per device as of the time it was captured.
+async fn put_status_batch(
+    Extension(tracker): Extension<Arc<device_manager::DeviceTracker>>,
+    Json(batch): Json<device_manager::StatusBatch>,
+) -> impl IntoResponse {
+    tracker.update_status_batch(batch);
     StatusCode::OK.into_response()
 }
 
 async fn get_status(
     Extension(tracker): Extension<Arc<device_manager::DeviceTracker>>,
-) -> Json<Vec<Status>> {
-    Json(tracker.get_active_statuses().await)
+    headers: HeaderMap,
+) -> Response {
+    let snapshot = tracker.snapshot();
+
+    if etag_matches(&headers, &snapshot.etag) {
+        return (
+            StatusCode::NOT_MODIFIED,
+            [(header::ETAG, snapshot.etag.as_str())],
+        )
+            .into_response();
+    }
+
+    (
+        StatusCode::OK,
+        [
+            (header::CONTENT_TYPE, "application/json"),
+            (header::ETAG, snapshot.etag.as_str()),
+            (header::CACHE_CONTROL, "no-cache"),
+        ],
+        snapshot.body.clone(),
+    )
+        .into_response()
+}
+
+/// Pushes the full list of active statuses once on connect and again after
+/// every change, so readers don't have to poll `GET /api/status`.
+async fn stream_status(
+    Extension(tracker): Extension<Arc<device_manager::DeviceTracker>>,
+) -> Sse<impl Stream<Item = Result<Event, Infallible>>> {
+    // Lagged receivers only skip intermediate versions, the next snapshot is always current.
+    let changes = BroadcastStream::new(tracker.subscribe()).map(|_| ());
+    let mut last_version = None;
+
+    let events = tokio_stream::once(()).chain(changes).filter_map(move |()| {
+        let snapshot = tracker.snapshot();
+        if last_version == Some(snapshot.version) {
+            return None;
+        }
+        last_version = Some(snapshot.version);
+
+        Some(Ok(Event::default()
+            .event("status")
+            .id(snapshot.version.to_string())
+            .data(std::str::from_utf8(&snapshot.body).unwrap_or("[]"))))
+    });
+
+    Sse::new(events).keep_alive(KeepAlive::default())
+}
+
+fn etag_matches(headers: &HeaderMap, etag: &str) -> bool {
+    headers
+        .get_all(header::IF_NONE_MATCH)
+        .iter()
+        .filter_map(|value| value.to_str().ok())
+        .flat_map(|value| value.split(','))
+        .map(str::trim)
+        .any(|tag| tag == "*" || tag.trim_start_matches("W/") == etag)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use axum::http::HeaderValue;
+
+    const ETAG: &str = "\"1a-3\"";
+
+    fn if_none_match(values: &[&'static str]) -> HeaderMap {
+        let mut headers = HeaderMap::new();
+        for value in values {
+            headers.append(header::IF_NONE_MATCH, HeaderValue::from_static(value));
+        }
+        headers
+    }
+
+    #[test]
+    fn etag_matches_exact_tag() {
+        assert!(etag_matches(&if_none_match(&["\"1a-3\""]), ETAG));
+    }
+
+    #[test]
+    fn etag_matches_weak_tag() {
+        assert!(etag_matches(&if_none_match(&["W/\"1a-3\""]), ETAG));
+    }
+
+    #[test]
+    fn etag_matches_wildcard() {
+        assert!(etag_matches(&if_none_match(&["*"]), ETAG));
+    }
+
+    #[test]
+    fn etag_matches_any_listed_tag() {
+        assert!(etag_matches(&if_none_match(&["\"1a-1\", \"1a-3\""]), ETAG));
+        assert!(etag_matches(&if_none_match(&["\"1a-1\"", "\"1a-3\""]), ETAG));
+    }
+
+    #[test]
+    fn etag_does_not_match_other_or_missing_tags() {
+        assert!(!etag_matches(&if_none_match(&["\"1a-2\""]), ETAG));
+        assert!(!etag_matches(&if_none_match(&["1a-3"]), ETAG));
+        assert!(!etag_matches(&HeaderMap::new(), ETAG));
+    }
 }
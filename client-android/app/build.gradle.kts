@@ -36,6 +36,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Plain JVM tests call into code that logs through android.util.Log.
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -43,6 +47,7 @@ dependencies {
     implementation(libs.androidx.constraintlayout)
     implementation(libs.material)
     implementation(libs.okhttp)
+    implementation(libs.okhttp.sse)
     implementation(libs.gson)
 
     compileOnly("org.projectlombok:lombok:1.18.34")
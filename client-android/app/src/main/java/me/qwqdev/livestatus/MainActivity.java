@@ -6,7 +6,9 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.Settings;
+import android.text.TextUtils;
 import android.widget.Button;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
@@ -14,18 +16,39 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import com.google.android.material.textfield.TextInputEditText;
+import me.qwqdev.livestatus.model.Status;
 import me.qwqdev.livestatus.service.AppDetectorService;
+import me.qwqdev.livestatus.service.DeliveryScheduler;
 import me.qwqdev.livestatus.service.StatusReporterService;
+import me.qwqdev.livestatus.util.DeliveryMode;
+import me.qwqdev.livestatus.util.DeliveryStats;
+import me.qwqdev.livestatus.util.FleetStatusStream;
 import me.qwqdev.livestatus.util.SettingsManager;
+import me.qwqdev.livestatus.util.TransitionBuffer;
 
-public class MainActivity extends AppCompatActivity {
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class MainActivity extends AppCompatActivity implements FleetStatusStream.Listener {
     private SettingsManager settingsManager;
+    private FleetStatusStream fleetStatusStream;
+    private DeliveryStats deliveryStats;
 
     private TextInputEditText urlInput;
     private TextInputEditText keyInput;
     private TextInputEditText intervalInput;
+    private TextInputEditText notificationIntervalInput;
+    private TextInputEditText deviceNameInput;
+    private TextInputEditText dwellInput;
+    private TextInputEditText denylistInput;
+    private TextInputEditText policiesInput;
     private TextView statusText;
     private TextView accessibilityStatus;
+    private TextView fleetText;
+    private TextView deliveryStatsText;
+    private RadioGroup deliveryModeGroup;
     private Button startButton;
     private Button stopButton;
     private final ActivityResultLauncher<String> notificationPermissionLauncher =
@@ -44,6 +67,8 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         settingsManager = new SettingsManager(this);
+        fleetStatusStream = new FleetStatusStream(this);
+        deliveryStats = new DeliveryStats(this);
 
         initViews();
         loadSettings();
@@ -55,14 +80,60 @@ public class MainActivity extends AppCompatActivity {
         super.onResume();
         updatePermissionStatus();
         updateServiceStatus();
+        startFleetStream();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        fleetStatusStream.stop();
+    }
+
+    @Override
+    public void onFleetUpdate(List<Status> statuses) {
+        if (statuses.isEmpty()) {
+            fleetText.setText(R.string.fleet_empty);
+            return;
+        }
+
+        String ownDeviceId = settingsManager.getDeviceId();
+        StringBuilder builder = new StringBuilder();
+
+        for (Status status : statuses) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            String deviceName = status.getDeviceName();
+            builder.append(deviceName == null || deviceName.isEmpty() ? status.getOsName() : deviceName);
+            if (ownDeviceId.equals(status.getDeviceId())) {
+                builder.append(' ').append(getString(R.string.fleet_this_device));
+            }
+            builder.append(": ").append(status.getAppName());
+        }
+
+        fleetText.setText(builder);
+    }
+
+    @Override
+    public void onDisconnected() {
+        fleetText.setText(R.string.fleet_disconnected);
     }
 
     private void initViews() {
         urlInput = findViewById(R.id.urlInput);
         keyInput = findViewById(R.id.keyInput);
         intervalInput = findViewById(R.id.intervalInput);
+        notificationIntervalInput = findViewById(R.id.notificationIntervalInput);
+        deviceNameInput = findViewById(R.id.deviceNameInput);
+        dwellInput = findViewById(R.id.dwellInput);
+        denylistInput = findViewById(R.id.denylistInput);
+        policiesInput = findViewById(R.id.policiesInput);
         statusText = findViewById(R.id.statusText);
         accessibilityStatus = findViewById(R.id.accessibilityStatus);
+        fleetText = findViewById(R.id.fleetText);
+        deliveryStatsText = findViewById(R.id.deliveryStatsText);
+        deliveryModeGroup = findViewById(R.id.deliveryModeGroup);
         startButton = findViewById(R.id.startButton);
         stopButton = findViewById(R.id.stopButton);
         accessibilityButton = findViewById(R.id.accessibilityButton);
@@ -75,18 +146,51 @@ public class MainActivity extends AppCompatActivity {
         urlInput.setText(settingsManager.getUrl());
         keyInput.setText(settingsManager.getAuthKey());
         intervalInput.setText(String.valueOf(settingsManager.getUpdateIntervalSecs()));
+        notificationIntervalInput.setText(String.valueOf(settingsManager.getNotificationIntervalSecs()));
+        deviceNameInput.setText(settingsManager.getDeviceName());
+        dwellInput.setText(String.valueOf(settingsManager.getMinDwellMs()));
+        denylistInput.setText(TextUtils.join("\n", new TreeSet<>(settingsManager.getPackageDenylist())));
+        policiesInput.setText(settingsManager.getReportPolicies());
+        deliveryModeGroup.check(settingsManager.getDeliveryMode() == DeliveryMode.LOW_POWER
+                ? R.id.modeLowPower
+                : R.id.modeRealtime);
     }
 
     private void setupListeners() {
         startButton.setOnClickListener(v -> onStartClicked());
         stopButton.setOnClickListener(v -> onStopClicked());
         accessibilityButton.setOnClickListener(v -> requestAccessibilityPermission());
+        deliveryModeGroup.setOnCheckedChangeListener((group, checkedId) ->
+                onDeliveryModeChanged(checkedId == R.id.modeLowPower ? DeliveryMode.LOW_POWER : DeliveryMode.REALTIME));
+    }
+
+    private void onDeliveryModeChanged(DeliveryMode mode) {
+        if (mode == settingsManager.getDeliveryMode()) {
+            return;
+        }
+
+        boolean wasRunning = isServiceRunning();
+        stopDelivery();
+        settingsManager.setDeliveryMode(mode);
+
+        if (wasRunning) {
+            onStartClicked();
+        } else {
+            updateServiceStatus();
+        }
     }
 
     private void saveSettings() {
         String url = urlInput.getText() != null ? urlInput.getText().toString().trim() : "";
         String key = keyInput.getText() != null ? keyInput.getText().toString().trim() : "";
         String intervalStr = intervalInput.getText() != null ? intervalInput.getText().toString().trim() : "5";
+        String notificationIntervalStr = notificationIntervalInput.getText() != null
+                ? notificationIntervalInput.getText().toString().trim()
+                : "10";
+        String deviceName = deviceNameInput.getText() != null ? deviceNameInput.getText().toString().trim() : "";
+        String dwellStr = dwellInput.getText() != null ? dwellInput.getText().toString().trim() : "";
+        String denylist = denylistInput.getText() != null ? denylistInput.getText().toString() : "";
+        String policies = policiesInput.getText() != null ? policiesInput.getText().toString().trim() : "";
 
         int interval;
         try {
@@ -98,11 +202,52 @@ public class MainActivity extends AppCompatActivity {
             interval = 5;
         }
 
+        int notificationInterval;
+        try {
+            notificationInterval = Math.max(0, Integer.parseInt(notificationIntervalStr));
+        } catch (NumberFormatException e) {
+            notificationInterval = 10;
+        }
+
         settingsManager.setUrl(url);
         settingsManager.setAuthKey(key);
         settingsManager.setUpdateIntervalSecs(interval);
+        settingsManager.setNotificationIntervalSecs(notificationInterval);
+        settingsManager.setDeviceName(deviceName);
+        settingsManager.setReportPolicies(policies);
+        settingsManager.setPackageDenylist(parseLines(denylist));
+
+        try {
+            settingsManager.setMinDwellMs(Math.max(0L, Long.parseLong(dwellStr)));
+        } catch (NumberFormatException ignored) {
+            // keep the current dwell time
+        }
 
         Toast.makeText(this, R.string.toast_settings_saved, Toast.LENGTH_SHORT).show();
+        startFleetStream();
+    }
+
+    private static Set<String> parseLines(String text) {
+        Set<String> lines = new HashSet<>();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                lines.add(trimmed);
+            }
+        }
+        return lines;
+    }
+
+    private void startFleetStream() {
+        String url = settingsManager.getUrl();
+        if (url == null || url.isEmpty()) {
+            fleetStatusStream.stop();
+            fleetText.setText(R.string.fleet_empty);
+            return;
+        }
+
+        fleetText.setText(R.string.fleet_connecting);
+        fleetStatusStream.start(url);
     }
 
     private void onStartClicked() {
@@ -116,6 +261,11 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        if (settingsManager.getDeliveryMode() == DeliveryMode.LOW_POWER) {
+            startLowPowerDelivery();
+            return;
+        }
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
                     != PackageManager.PERMISSION_GRANTED) {
@@ -128,6 +278,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void startStatusService() {
+        DeliveryScheduler.cancel(this);
+        TransitionBuffer.get(this).clear();
+
         Intent serviceIntent = new Intent(this, StatusReporterService.class);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             startForegroundService(serviceIntent);
@@ -139,14 +292,26 @@ public class MainActivity extends AppCompatActivity {
         setServiceStatusUI(true);
     }
 
+    private void startLowPowerDelivery() {
+        stopService(new Intent(this, StatusReporterService.class));
+        DeliveryScheduler.schedule(this);
+        settingsManager.setServiceEnabled(true);
+        Toast.makeText(this, R.string.toast_service_started, Toast.LENGTH_SHORT).show();
+        setServiceStatusUI(true);
+    }
+
     private void onStopClicked() {
-        Intent serviceIntent = new Intent(this, StatusReporterService.class);
-        stopService(serviceIntent);
-        settingsManager.setServiceEnabled(false);
+        stopDelivery();
         Toast.makeText(this, R.string.toast_service_stopped, Toast.LENGTH_SHORT).show();
         setServiceStatusUI(false);
     }
 
+    private void stopDelivery() {
+        stopService(new Intent(this, StatusReporterService.class));
+        DeliveryScheduler.cancel(this);
+        settingsManager.setServiceEnabled(false);
+    }
+
     private void requestAccessibilityPermission() {
         Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
         startActivity(intent);
@@ -168,6 +333,11 @@ public class MainActivity extends AppCompatActivity {
 
     private void updateServiceStatus() {
         setServiceStatusUI(isServiceRunning());
+        deliveryStatsText.setText(getString(
+                R.string.delivery_stats,
+                deliveryStats.summarize(DeliveryMode.REALTIME),
+                deliveryStats.summarize(DeliveryMode.LOW_POWER)
+        ));
     }
 
     private void setServiceStatusUI(boolean isRunning) {
@@ -185,6 +355,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private boolean isServiceRunning() {
+        if (settingsManager.getDeliveryMode() == DeliveryMode.LOW_POWER) {
+            return DeliveryScheduler.isScheduled(this);
+        }
         return StatusReporterService.isServiceRunning();
     }
 }
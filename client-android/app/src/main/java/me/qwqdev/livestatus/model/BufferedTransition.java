@@ -0,0 +1,15 @@
+package me.qwqdev.livestatus.model;
+
+import com.google.gson.annotations.SerializedName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BufferedTransition {
+    @SerializedName("captured_at")
+    private long capturedAt;
+
+    @SerializedName("status")
+    private Status status;
+}
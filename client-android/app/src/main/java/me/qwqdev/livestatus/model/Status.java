@@ -19,8 +19,14 @@ public class Status {
     @SerializedName("force_status_type")
     private String forceStatusType;
 
+    @SerializedName("device_id")
+    private String deviceId;
+
+    @SerializedName("device_name")
+    private String deviceName;
+
     public Status(String title, String appName) {
-        this(title, appName, "android", "N/A");
+        this(title, appName, "android", "N/A", "", "");
     }
 
     public static Status na() {
@@ -28,6 +34,12 @@ public class Status {
     }
 
     public static Status screenOff() {
-        return new Status("Screen Off", "Screen Off", "android", "N/A");
+        return new Status("Screen Off", "Screen Off");
+    }
+
+    public Status withDevice(String deviceId, String deviceName) {
+        this.deviceId = deviceId;
+        this.deviceName = deviceName;
+        return this;
     }
 }
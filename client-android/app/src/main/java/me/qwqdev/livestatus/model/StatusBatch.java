@@ -0,0 +1,22 @@
+package me.qwqdev.livestatus.model;
+
+import com.google.gson.annotations.SerializedName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Body of {@code PUT /api/status/batch}. The server only uses the difference
+ * between {@code sent_at} and each {@code captured_at}, so the device clock
+ * does not need to match the server's.
+ */
+@Data
+@AllArgsConstructor
+public class StatusBatch {
+    @SerializedName("sent_at")
+    private long sentAt;
+
+    @SerializedName("statuses")
+    private List<BufferedTransition> statuses;
+}
@@ -6,7 +6,9 @@ import android.content.Intent;
 import android.os.Build;
 import android.util.Log;
 import me.qwqdev.livestatus.service.AppDetectorService;
+import me.qwqdev.livestatus.service.DeliveryScheduler;
 import me.qwqdev.livestatus.service.StatusReporterService;
+import me.qwqdev.livestatus.util.DeliveryMode;
 import me.qwqdev.livestatus.util.SettingsManager;
 
 public class BootReceiver extends BroadcastReceiver {
@@ -40,6 +42,12 @@ public class BootReceiver extends BroadcastReceiver {
                 return;
             }
 
+            if (settingsManager.getDeliveryMode() == DeliveryMode.LOW_POWER) {
+                Log.i(TAG, "Low-power mode, making sure delivery jobs are scheduled");
+                DeliveryScheduler.schedule(context);
+                return;
+            }
+
             Log.i(TAG, "Starting StatusReporterService on boot");
             startStatusService(context);
         }
@@ -2,14 +2,27 @@ package me.qwqdev.livestatus.service;
 
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityWindowInfo;
+import me.qwqdev.livestatus.model.BufferedTransition;
+import me.qwqdev.livestatus.model.Status;
+import me.qwqdev.livestatus.util.DeliveryMode;
+import me.qwqdev.livestatus.util.PackagePrefixTrie;
+import me.qwqdev.livestatus.util.ReportPolicy;
+import me.qwqdev.livestatus.util.SettingsManager;
+import me.qwqdev.livestatus.util.TransitionBuffer;
 
 import java.util.List;
 import java.util.Objects;
@@ -17,6 +30,30 @@ import java.util.stream.IntStream;
 
 public class AppDetectorService extends AccessibilityService {
     private static AppDetectorService instance = null;
+    private static TransitionListener transitionListener = null;
+
+    private TransitionDebouncer debouncer;
+    private SettingsManager settingsManager;
+
+    // Held in a field because SharedPreferences only keeps a weak reference to listeners.
+    private final SharedPreferences.OnSharedPreferenceChangeListener settingsListener = (prefs, key) -> {
+        if (SettingsManager.isDebouncerKey(key)) {
+            loadDebouncerSettings();
+        }
+    };
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                bufferIfLowPower(Status.screenOff());
+            }
+            // Whatever is in front once the screen is back on counts as a new transition.
+            if (debouncer != null) {
+                debouncer.reset();
+            }
+        }
+    };
 
     public static boolean isServiceEnabled(Context context) {
         String enabledServices = Settings.Secure.getString(
@@ -49,20 +86,35 @@ public class AppDetectorService extends AccessibilityService {
         return packageName == null ? null : instance.getAppNameFromPackage(packageName);
     }
 
+    /**
+     * Returns the last settled foreground app, or queries the active window when
+     * nothing has settled yet. Denylisted packages are never returned.
+     */
     public static String[] getActiveAppInfo() {
         if (instance == null) {
             return null;
         }
 
-        String packageName = instance.queryActivePackageName();
-
+        String packageName = instance.debouncer == null ? null : instance.debouncer.getSettledPackage();
         if (packageName == null) {
+            packageName = instance.queryActivePackageName();
+        }
+
+        if (packageName == null || (instance.debouncer != null && instance.debouncer.isDenied(packageName))) {
             return null;
         }
 
         return new String[]{packageName, instance.getAppNameFromPackage(packageName)};
     }
 
+    /**
+     * Registers the listener notified on the main thread whenever the foreground
+     * app settles on a new package. Pass {@code null} to unregister.
+     */
+    public static void setTransitionListener(TransitionListener listener) {
+        transitionListener = listener;
+    }
+
     private String queryActivePackageName() {
         String pkg = extractPackage(getRootInActiveWindow());
         if (pkg != null) {
@@ -130,8 +182,62 @@ public class AppDetectorService extends AccessibilityService {
         }
     }
 
+    private void onSettled(String packageName) {
+        String appName = getAppNameFromPackage(packageName);
+
+        TransitionListener listener = transitionListener;
+        if (listener != null) {
+            listener.onTransition(packageName, appName);
+        }
+
+        boolean hidden = settingsManager != null
+                && settingsManager.getReportPolicyTable().lookup(packageName) == ReportPolicy.NEVER;
+        bufferIfLowPower(hidden ? Status.na() : new Status(packageName, appName));
+    }
+
+    /**
+     * In low-power mode there is no reporter service to hand transitions to, so they
+     * are buffered for the next {@link DeliveryJobService} run instead.
+     */
+    private void bufferIfLowPower(Status status) {
+        if (settingsManager == null
+                || !settingsManager.isServiceEnabled()
+                || settingsManager.getDeliveryMode() != DeliveryMode.LOW_POWER) {
+            return;
+        }
+
+        status.withDevice(settingsManager.getDeviceId(), settingsManager.getDeviceName());
+        TransitionBuffer.get(this).append(new BufferedTransition(System.currentTimeMillis(), status));
+    }
+
+    private void loadDebouncerSettings() {
+        PackagePrefixTrie denylist = PackagePrefixTrie.compile(settingsManager.getPackageDenylist());
+
+        if (debouncer == null) {
+            debouncer = new TransitionDebouncer(
+                    TransitionDebouncer.Scheduler.of(new Handler(Looper.getMainLooper())),
+                    denylist,
+                    settingsManager.getMinDwellMs(),
+                    this::onSettled
+            );
+        } else {
+            debouncer.configure(denylist, settingsManager.getMinDwellMs());
+        }
+    }
+
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
+        // Only window state changes carry the package; anything else would need window queries over binder.
+        if (debouncer == null || event == null
+                || event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+                || event.getPackageName() == null) {
+            return;
+        }
+
+        String packageName = event.getPackageName().toString();
+        if (!isInputMethod(packageName)) {
+            debouncer.onForegroundChanged(packageName);
+        }
     }
 
     @Override
@@ -148,19 +254,37 @@ public class AppDetectorService extends AccessibilityService {
             info = new AccessibilityServiceInfo();
         }
 
-        info.eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
-                | AccessibilityEvent.TYPE_WINDOWS_CHANGED;
+        info.eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
         info.flags = AccessibilityServiceInfo.FLAG_RETRIEVE_INTERACTIVE_WINDOWS;
         info.notificationTimeout = 0;
         info.packageNames = null;
 
         setServiceInfo(info);
+
+        settingsManager = new SettingsManager(this);
+        loadDebouncerSettings();
+        settingsManager.registerOnChangeListener(settingsListener);
+
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        screenFilter.addAction(Intent.ACTION_SCREEN_ON);
+        registerReceiver(screenReceiver, screenFilter);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        if (settingsManager != null) {
+            settingsManager.unregisterOnChangeListener(settingsListener);
+            unregisterReceiver(screenReceiver);
+        }
+        if (debouncer != null) {
+            debouncer.reset();
+        }
         instance = null;
     }
+
+    public interface TransitionListener {
+        void onTransition(String packageName, String appName);
+    }
 }
@@ -0,0 +1,158 @@
+package me.qwqdev.livestatus.service;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+import me.qwqdev.livestatus.model.BufferedTransition;
+import me.qwqdev.livestatus.util.DeliveryMode;
+import me.qwqdev.livestatus.util.DeliveryStats;
+import me.qwqdev.livestatus.util.SettingsManager;
+import me.qwqdev.livestatus.util.TransitionBuffer;
+import okhttp3.Call;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Low-power delivery: sends the newest transition {@link AppDetectorService}
+ * buffered since the last run, compressed on metered links, then lets the device
+ * go back to sleep.
+ * <p>
+ * Runs are minutes apart, so what arrives is usually past the server's live
+ * timeout. The server lists it as "last seen" rather than live, and only ever
+ * keeps the newest status per device, so older transitions are not uploaded.
+ * <p>
+ * Every run finishes through {@link #complete(Run, boolean)} on the main thread,
+ * so the charging trigger is only re-armed once the system considers the job done.
+ */
+public class DeliveryJobService extends JobService {
+    private static final String TAG = "DeliveryJobService";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SparseArray<Run> runs = new SparseArray<>();
+    private StatusSender statusSender;
+    private DeliveryStats stats;
+    private Run delivering;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        statusSender = new StatusSender(new SettingsManager(this));
+        stats = new DeliveryStats(this);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Run run = new Run(params, SystemClock.elapsedRealtime());
+        runs.put(params.getJobId(), run);
+
+        // The periodic and charging jobs share one buffer, a second run has nothing left to send.
+        if (delivering != null) {
+            handler.post(() -> complete(run, false));
+            return true;
+        }
+
+        TransitionBuffer buffer = TransitionBuffer.get(this);
+        List<BufferedTransition> transitions = buffer.snapshot();
+
+        if (!transitions.isEmpty()) {
+            BufferedTransition newest = transitions.get(transitions.size() - 1);
+            run.call = statusSender.sendBatch(Collections.singletonList(newest), isMetered(), new StatusSender.Listener() {
+                @Override
+                public void onSuccess() {
+                    long deliveredAt = System.currentTimeMillis();
+                    handler.post(() -> {
+                        // Everything before the newest entry was superseded on the device already.
+                        buffer.discard(transitions);
+                        stats.recordDelivery(
+                                DeliveryMode.LOW_POWER,
+                                1,
+                                Math.max(0L, deliveredAt - newest.getCapturedAt())
+                        );
+                        complete(run, false);
+                    });
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    handler.post(() -> {
+                        if (!run.stopped) {
+                            Log.w(TAG, "Delivery failed, retrying later: " + error);
+                        }
+                        complete(run, true);
+                    });
+                }
+            });
+        }
+
+        if (run.call == null) {
+            handler.post(() -> complete(run, false));
+        } else {
+            delivering = run;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Run run = runs.get(params.getJobId());
+        if (run != null) {
+            run.stopped = true;
+            if (run.call != null) {
+                run.call.cancel();
+            }
+            release(run);
+        }
+        return true;
+    }
+
+    private void complete(Run run, boolean reschedule) {
+        if (run.stopped) {
+            return;
+        }
+
+        release(run);
+        jobFinished(run.params, reschedule);
+
+        // A failed charging run is retried by the system with backoff, only re-arm it once it is done.
+        if (!reschedule && run.params.getJobId() == DeliveryScheduler.CHARGING_JOB_ID) {
+            DeliveryScheduler.rescheduleChargingJob(this);
+        }
+    }
+
+    private void release(Run run) {
+        if (runs.get(run.params.getJobId()) == run) {
+            runs.remove(run.params.getJobId());
+        }
+        if (delivering == run) {
+            delivering = null;
+        }
+        stats.recordAwakeTime(DeliveryMode.LOW_POWER, SystemClock.elapsedRealtime() - run.startedAt);
+    }
+
+    private boolean isMetered() {
+        ConnectivityManager connectivityManager = getSystemService(ConnectivityManager.class);
+        return connectivityManager == null || connectivityManager.isActiveNetworkMetered();
+    }
+
+    /**
+     * One execution of a job. Stopped runs ignore their late callbacks, since the
+     * system already took the job back.
+     */
+    private static final class Run {
+        private final JobParameters params;
+        private final long startedAt;
+        private Call call;
+        private boolean stopped;
+
+        private Run(JobParameters params, long startedAt) {
+            this.params = params;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package me.qwqdev.livestatus.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the {@link DeliveryJobService} jobs that back low-power mode: a
+ * periodic job run by the system in maintenance windows once a network is
+ * available, and a one-shot job that fires when the device starts charging.
+ */
+public final class DeliveryScheduler {
+    static final int PERIODIC_JOB_ID = 1001;
+    static final int CHARGING_JOB_ID = 1002;
+
+    private static final String TAG = "DeliveryScheduler";
+    private static final long PERIOD_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long CHARGING_MIN_LATENCY_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private DeliveryScheduler() {
+    }
+
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null) {
+            return;
+        }
+
+        if (scheduler.getPendingJob(PERIODIC_JOB_ID) == null) {
+            JobInfo periodic = new JobInfo.Builder(PERIODIC_JOB_ID, component(context))
+                    .setPeriodic(PERIOD_MS)
+                    .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                    .setPersisted(true)
+                    .build();
+            logResult("periodic", scheduler.schedule(periodic));
+        }
+
+        if (scheduler.getPendingJob(CHARGING_JOB_ID) == null) {
+            scheduleChargingJob(context, scheduler, 0L);
+        }
+    }
+
+    public static void cancel(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler != null) {
+            scheduler.cancel(PERIODIC_JOB_ID);
+            scheduler.cancel(CHARGING_JOB_ID);
+        }
+    }
+
+    public static boolean isScheduled(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        return scheduler != null && scheduler.getPendingJob(PERIODIC_JOB_ID) != null;
+    }
+
+    /**
+     * Re-arms the charging trigger after it ran. The minimum latency keeps it from
+     * firing over and over while the device stays plugged in.
+     */
+    static void rescheduleChargingJob(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler != null) {
+            scheduleChargingJob(context, scheduler, CHARGING_MIN_LATENCY_MS);
+        }
+    }
+
+    private static void scheduleChargingJob(Context context, JobScheduler scheduler, long minLatencyMs) {
+        JobInfo charging = new JobInfo.Builder(CHARGING_JOB_ID, component(context))
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(minLatencyMs)
+                .setPersisted(true)
+                .build();
+        logResult("charging", scheduler.schedule(charging));
+    }
+
+    private static ComponentName component(Context context) {
+        return new ComponentName(context, DeliveryJobService.class);
+    }
+
+    private static void logResult(String job, int result) {
+        if (result != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "Failed to schedule " + job + " delivery job");
+        }
+    }
+}
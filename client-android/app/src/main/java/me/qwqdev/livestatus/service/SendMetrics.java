@@ -0,0 +1,123 @@
+package me.qwqdev.livestatus.service;
+
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+
+/**
+ * Rolling one-minute view of what the reporter has been sending, plus how long it
+ * has been offline, used for the foreground notification. Not thread-safe; only
+ * touch it from the main thread.
+ */
+public class SendMetrics {
+    private static final long WINDOW_MS = 60_000L;
+
+    private final ArrayDeque<Long> sendTimes = new ArrayDeque<>();
+
+    private String currentApp;
+    private String lastError;
+    private long lastErrorAt;
+    private long offlineSince = -1L;
+    private long totalOfflineMs = 0L;
+
+    public void recordSuccess(String appName) {
+        long now = SystemClock.elapsedRealtime();
+        sendTimes.addLast(now);
+        prune(now);
+        currentApp = appName;
+    }
+
+    public void recordError(String error) {
+        lastError = error;
+        lastErrorAt = SystemClock.elapsedRealtime();
+    }
+
+    public void markOffline() {
+        if (offlineSince < 0) {
+            offlineSince = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * @return how long this offline stretch lasted, or 0 if the reporter was not offline
+     */
+    public long markOnline() {
+        if (offlineSince < 0) {
+            return 0L;
+        }
+
+        long offlineMs = SystemClock.elapsedRealtime() - offlineSince;
+        totalOfflineMs += offlineMs;
+        offlineSince = -1L;
+        return offlineMs;
+    }
+
+    public boolean isOffline() {
+        return offlineSince >= 0;
+    }
+
+    /**
+     * @return total time spent offline since the reporter started, including the current stretch
+     */
+    public long getTotalOfflineMs() {
+        return isOffline() ? totalOfflineMs + SystemClock.elapsedRealtime() - offlineSince : totalOfflineMs;
+    }
+
+    public int getSendsPerMinute() {
+        prune(SystemClock.elapsedRealtime());
+        return sendTimes.size();
+    }
+
+    /**
+     * @return the last error if it happened within the rolling window, otherwise {@code null}
+     */
+    public String getRecentError() {
+        if (lastError == null || SystemClock.elapsedRealtime() - lastErrorAt > WINDOW_MS) {
+            return null;
+        }
+        return lastError;
+    }
+
+    public String getCurrentApp() {
+        return currentApp;
+    }
+
+    /**
+     * Compact one-line summary such as {@code "Chrome · 12/min · Connection error"}.
+     */
+    public String summarize() {
+        StringBuilder builder = new StringBuilder(currentApp == null ? "Waiting for first report" : currentApp)
+                .append(" · ")
+                .append(getSendsPerMinute())
+                .append("/min");
+
+        if (isOffline()) {
+            builder.append(" · offline ").append(formatDuration(SystemClock.elapsedRealtime() - offlineSince));
+            return builder.toString();
+        }
+
+        String error = getRecentError();
+        if (error != null) {
+            builder.append(" · ").append(error);
+        }
+
+        return builder.toString();
+    }
+
+    private static String formatDuration(long ms) {
+        long seconds = ms / 1000L;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return (seconds / 60) + "m";
+        }
+        return (seconds / 3600) + "h";
+    }
+
+    private void prune(long now) {
+        while (!sendTimes.isEmpty() && now - sendTimes.peekFirst() > WINDOW_MS) {
+            sendTimes.removeFirst();
+        }
+    }
+}
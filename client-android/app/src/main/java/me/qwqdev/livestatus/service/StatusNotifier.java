@@ -0,0 +1,108 @@
+package me.qwqdev.livestatus.service;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.core.app.NotificationCompat;
+import me.qwqdev.livestatus.MainActivity;
+import me.qwqdev.livestatus.R;
+
+/**
+ * Owns the reporter's foreground notification. The builder and its
+ * {@link PendingIntent} are created once, {@code notify} is skipped when the text
+ * has not changed, and updates are coalesced to at most one per interval, keeping
+ * only the latest text. All calls must happen on the handler's thread.
+ */
+public class StatusNotifier {
+    private final NotificationManager manager;
+    private final NotificationCompat.Builder builder;
+    private final Handler handler;
+    private final int notificationId;
+    private final Runnable flushRunnable = this::flush;
+
+    private long minIntervalMs;
+    private long lastNotifyAt = 0L;
+    private String shownText;
+    private String pendingText;
+    private boolean flushScheduled = false;
+
+    public StatusNotifier(Context context, Handler handler, String channelId, int notificationId, long minIntervalMs) {
+        this.manager = context.getSystemService(NotificationManager.class);
+        this.handler = handler;
+        this.notificationId = notificationId;
+        this.minIntervalMs = minIntervalMs;
+
+        PendingIntent contentIntent = PendingIntent.getActivity(
+                context,
+                0,
+                new Intent(context, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE
+        );
+
+        this.builder = new NotificationCompat.Builder(context, channelId)
+                .setContentTitle("LiveStatus")
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setShowWhen(false)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setCategory(NotificationCompat.CATEGORY_SERVICE);
+    }
+
+    public void setMinIntervalMs(long minIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    /**
+     * Builds the notification for {@code startForeground} and records it as shown.
+     */
+    public Notification build(String contentText) {
+        shownText = contentText;
+        lastNotifyAt = SystemClock.elapsedRealtime();
+        return builder.setContentText(contentText).build();
+    }
+
+    public void update(String contentText) {
+        if (contentText.equals(shownText)) {
+            pendingText = null;
+            return;
+        }
+
+        pendingText = contentText;
+        long waitMs = lastNotifyAt + minIntervalMs - SystemClock.elapsedRealtime();
+
+        if (waitMs <= 0) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, waitMs);
+        }
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        pendingText = null;
+    }
+
+    private void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+
+        String text = pendingText;
+        pendingText = null;
+
+        if (text == null || text.equals(shownText) || manager == null) {
+            return;
+        }
+
+        manager.notify(notificationId, builder.setContentText(text).build());
+        shownText = text;
+        lastNotifyAt = SystemClock.elapsedRealtime();
+    }
+}
@@ -1,9 +1,7 @@
 package me.qwqdev.livestatus.service;
 
-import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -12,44 +10,42 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
-import androidx.core.app.NotificationCompat;
-import com.google.gson.Gson;
 import lombok.Getter;
-import me.qwqdev.livestatus.MainActivity;
-import me.qwqdev.livestatus.R;
+import me.qwqdev.livestatus.model.BufferedTransition;
 import me.qwqdev.livestatus.model.Status;
+import me.qwqdev.livestatus.util.DeliveryMode;
+import me.qwqdev.livestatus.util.DeliveryStats;
+import me.qwqdev.livestatus.util.NetworkMonitor;
+import me.qwqdev.livestatus.util.ReportPolicy;
 import me.qwqdev.livestatus.util.ScreenHelper;
 import me.qwqdev.livestatus.util.SettingsManager;
 import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-import org.jetbrains.annotations.NotNull;
-
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 public class StatusReporterService extends Service {
     private static final String TAG = "StatusReporterService";
     private static final String CHANNEL_ID = "livestatus_channel";
     private static final int NOTIFICATION_ID = 1;
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     private static final long WAKELOCK_TIMEOUT_MS = 10 * 60 * 1000L; // 10 minutes
+    private static final long AWAKE_FLUSH_INTERVAL_MS = 60 * 1000L;
 
     @Getter
     private static volatile boolean serviceRunning = false;
 
     private Handler handler;
     private Runnable reportRunnable;
-    private OkHttpClient httpClient;
-    private Gson gson;
+    private StatusSender statusSender;
+    private NetworkMonitor networkMonitor;
     private SettingsManager settingsManager;
     private ScreenHelper screenHelper;
     private PowerManager.WakeLock wakeLock;
+    private StatusNotifier notifier;
+    private final SendMetrics sendMetrics = new SendMetrics();
+    private BufferedTransition pending;
+    private DeliveryStats deliveryStats;
+    private long lastAwakeFlushAt;
+    private boolean sendInFlight = false;
     private boolean isRunning = false;
 
     @Override
@@ -57,15 +53,28 @@ public class StatusReporterService extends Service {
         super.onCreate();
         serviceRunning = true;
 
+        lastAwakeFlushAt = SystemClock.elapsedRealtime();
         handler = new Handler(Looper.getMainLooper());
-        httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .writeTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .build();
-        gson = new Gson();
         settingsManager = new SettingsManager(this);
+        deliveryStats = new DeliveryStats(this);
+        statusSender = new StatusSender(settingsManager);
         screenHelper = new ScreenHelper(this);
+        networkMonitor = new NetworkMonitor(this, handler, new NetworkMonitor.Listener() {
+            @Override
+            public void onNetworkAvailable() {
+                long offlineMs = sendMetrics.markOnline();
+                Log.i(TAG, "Network available after " + offlineMs + " ms offline (" + sendMetrics.getTotalOfflineMs()
+                        + " ms in total), sending the current status");
+                reportNow();
+            }
+
+            @Override
+            public void onNetworkLost() {
+                Log.i(TAG, "Network lost, pausing reports");
+                sendMetrics.markOffline();
+                notifier.update(sendMetrics.summarize());
+            }
+        });
 
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         if (powerManager != null) {
@@ -77,11 +86,19 @@ public class StatusReporterService extends Service {
         }
 
         createNotificationChannel();
+        notifier = new StatusNotifier(
+                this,
+                handler,
+                CHANNEL_ID,
+                NOTIFICATION_ID,
+                settingsManager.getNotificationIntervalSecs() * 1000L
+        );
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        startForeground(NOTIFICATION_ID, createNotification("Status reporter is running"));
+        notifier.setMinIntervalMs(settingsManager.getNotificationIntervalSecs() * 1000L);
+        startForeground(NOTIFICATION_ID, notifier.build("Status reporter is running"));
         startReporting();
         return START_STICKY;
     }
@@ -96,6 +113,9 @@ public class StatusReporterService extends Service {
         super.onDestroy();
         serviceRunning = false;
         stopReporting();
+        networkMonitor.stop();
+        notifier.cancel();
+        flushAwakeTime(true);
         if (wakeLock != null && wakeLock.isHeld()) {
             wakeLock.release();
         }
@@ -130,39 +150,16 @@ public class StatusReporterService extends Service {
         }
     }
 
-    private Notification createNotification(String contentText) {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this,
-                0,
-                notificationIntent,
-                PendingIntent.FLAG_IMMUTABLE
-        );
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("LiveStatus")
-                .setContentText(contentText)
-                .setSmallIcon(R.drawable.ic_launcher_foreground)
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setCategory(NotificationCompat.CATEGORY_SERVICE)
-                .build();
-    }
-
-    private void updateNotification(String contentText) {
-        NotificationManager manager = getSystemService(NotificationManager.class);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID, createNotification(contentText));
-        }
-    }
-
     private void startReporting() {
         if (isRunning) {
             return;
         }
 
         isRunning = true;
+        networkMonitor.start();
+        if (!networkMonitor.isOnline()) {
+            sendMetrics.markOffline();
+        }
 
         reportRunnable = new Runnable() {
             @Override
@@ -175,6 +172,8 @@ public class StatusReporterService extends Service {
                     wakeLock.acquire(WAKELOCK_TIMEOUT_MS);
                 }
 
+                notifier.setMinIntervalMs(settingsManager.getNotificationIntervalSecs() * 1000L);
+                flushAwakeTime(false);
                 reportStatus();
                 int interval = settingsManager.getUpdateIntervalSecs();
                 handler.postDelayed(this, interval * 1000L);
@@ -182,17 +181,50 @@ public class StatusReporterService extends Service {
         };
 
         handler.post(reportRunnable);
+        AppDetectorService.setTransitionListener((packageName, appName) -> onTransition(packageName));
     }
 
     private void stopReporting() {
         isRunning = false;
+        AppDetectorService.setTransitionListener(null);
         if (handler != null && reportRunnable != null) {
             handler.removeCallbacks(reportRunnable);
         }
     }
 
+    /**
+     * Only {@link ReportPolicy#IMMEDIATE} apps trigger a send. Lazy ones wait for the
+     * next heartbeat, and {@link ReportPolicy#NEVER} apps are masked by {@link #getCurrentStatus()}.
+     */
+    private void onTransition(String packageName) {
+        if (settingsManager.getReportPolicyTable().lookup(packageName) == ReportPolicy.IMMEDIATE) {
+            reportNow();
+        }
+    }
+
+    /**
+     * Sends the settled app right away and restarts the periodic heartbeat from now.
+     */
+    private void reportNow() {
+        if (!isRunning) {
+            return;
+        }
+
+        handler.removeCallbacks(reportRunnable);
+        handler.post(reportRunnable);
+    }
+
     private void reportStatus() {
-        sendStatusToServer(getCurrentStatus());
+        Status status = getCurrentStatus()
+                .withDevice(settingsManager.getDeviceId(), settingsManager.getDeviceName());
+        enqueue(new BufferedTransition(System.currentTimeMillis(), status));
+
+        if (!networkMonitor.isOnline()) {
+            notifier.update(sendMetrics.summarize());
+            return;
+        }
+
+        flushPending();
     }
 
     private Status getCurrentStatus() {
@@ -203,6 +235,9 @@ public class StatusReporterService extends Service {
         if (AppDetectorService.isServiceRunning()) {
             String[] appInfo = AppDetectorService.getActiveAppInfo();
             if (appInfo != null) {
+                if (settingsManager.getReportPolicyTable().lookup(appInfo[0]) == ReportPolicy.NEVER) {
+                    return Status.na();
+                }
                 return new Status(appInfo[0], appInfo[1]);
             }
         }
@@ -210,43 +245,77 @@ public class StatusReporterService extends Service {
         return Status.na();
     }
 
-    private void sendStatusToServer(Status status) {
-        String url = settingsManager.getUrl();
-        String authKey = settingsManager.getAuthKey();
-
-        if (url == null || url.isEmpty() || authKey == null || authKey.isEmpty()) {
-            Log.w(TAG, "Server URL or auth key not configured");
+    /**
+     * Keeps only the latest undelivered status. Anything it replaces was superseded
+     * before it could be sent, and replaying it would only show the server a stale app.
+     * A repeat keeps its original capture time so the delivery latency stays honest.
+     */
+    private void enqueue(BufferedTransition transition) {
+        if (pending != null && pending.getStatus().equals(transition.getStatus())) {
             return;
         }
+        pending = transition;
+    }
 
-        String json = gson.toJson(status);
-        RequestBody body = RequestBody.create(json, JSON);
-
-        Request request = new Request.Builder()
-                .url(url)
-                .put(body)
-                .addHeader("Authorization", authKey)
-                .build();
+    private void flushPending() {
+        if (sendInFlight || pending == null || !networkMonitor.isOnline()) {
+            return;
+        }
 
-        httpClient.newCall(request).enqueue(new Callback() {
+        BufferedTransition transition = pending;
+        // Metered links cost more per byte, so compress there; unmetered ones save the CPU work.
+        Call call = statusSender.send(transition.getStatus(), networkMonitor.isMetered(), new StatusSender.Listener() {
             @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                Log.e(TAG, "Failed to send status: " + e.getMessage());
-                handler.post(() -> updateNotification("Connection error"));
+            public void onSuccess() {
+                long deliveredAt = System.currentTimeMillis();
+                handler.post(() -> {
+                    sendInFlight = false;
+                    if (pending == transition) {
+                        pending = null;
+                    }
+                    deliveryStats.recordDelivery(
+                            DeliveryMode.REALTIME,
+                            1,
+                            Math.max(0L, deliveredAt - transition.getCapturedAt())
+                    );
+                    onSendSucceeded(transition.getStatus());
+                    flushPending();
+                });
             }
 
             @Override
-            public void onResponse(@NotNull Call call, @NotNull Response response) {
-                if (response.isSuccessful()) {
-                    Log.i(TAG, "Sent status: " + status);
-                    handler.post(() -> updateNotification("Reporting: " + status.getAppName()));
-                } else {
-                    Log.e(TAG, "Server returned error: " + response.code());
-                    handler.post(() -> updateNotification("Server error: " + response.code()));
-                }
-
-                response.close();
+            public void onFailure(String error) {
+                handler.post(() -> {
+                    sendInFlight = false;
+                    onSendFailed(error);
+                });
             }
         });
+        sendInFlight = call != null;
+    }
+
+    /**
+     * Adds the time since the last flush to the realtime awake total, at most once a
+     * minute unless forced, so the comparison with low-power mode holds up even if
+     * the process is killed without onDestroy.
+     */
+    private void flushAwakeTime(boolean force) {
+        long now = SystemClock.elapsedRealtime();
+        if (!force && now - lastAwakeFlushAt < AWAKE_FLUSH_INTERVAL_MS) {
+            return;
+        }
+
+        deliveryStats.recordAwakeTime(DeliveryMode.REALTIME, now - lastAwakeFlushAt);
+        lastAwakeFlushAt = now;
+    }
+
+    private void onSendSucceeded(Status status) {
+        sendMetrics.recordSuccess(status.getAppName());
+        notifier.update(sendMetrics.summarize());
+    }
+
+    private void onSendFailed(String error) {
+        sendMetrics.recordError(error);
+        notifier.update(sendMetrics.summarize());
     }
 }
@@ -0,0 +1,152 @@
+package me.qwqdev.livestatus.service;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import me.qwqdev.livestatus.model.BufferedTransition;
+import me.qwqdev.livestatus.model.Status;
+import me.qwqdev.livestatus.model.StatusBatch;
+import me.qwqdev.livestatus.util.HttpClients;
+import me.qwqdev.livestatus.util.SettingsManager;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delivers statuses to the server. A live status goes to the configured endpoint
+ * as before; queued ones are sent together with their capture times to its
+ * {@code /batch} sibling.
+ * <p>
+ * Callers ask for compression on metered links. A body is then gzipped whenever
+ * that makes it smaller, which already holds for a single status of about 170
+ * bytes; unmetered links skip the CPU work.
+ */
+public class StatusSender {
+    private static final String TAG = "StatusSender";
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String BATCH_SUFFIX = "/batch";
+
+    private final Gson gson = new Gson();
+    private final SettingsManager settingsManager;
+
+    public StatusSender(SettingsManager settingsManager) {
+        this.settingsManager = settingsManager;
+    }
+
+    /**
+     * Sends the device's current status asynchronously. The callback runs on an OkHttp thread.
+     *
+     * @return the call in flight, or {@code null} if nothing was sent because the server is not configured
+     */
+    @Nullable
+    public Call send(Status status, boolean compress, Listener listener) {
+        return put(false, gson.toJson(status), compress, "status: " + status, listener);
+    }
+
+    /**
+     * Sends queued transitions, oldest first, in one request. The server applies
+     * only the newest one per device, as of when it was captured.
+     *
+     * @return the call in flight, or {@code null} if nothing was sent because the server is not configured
+     */
+    @Nullable
+    public Call sendBatch(List<BufferedTransition> transitions, boolean compress, Listener listener) {
+        String json = gson.toJson(new StatusBatch(System.currentTimeMillis(), transitions));
+        String description = transitions.size() + " queued status(es), latest: "
+                + transitions.get(transitions.size() - 1).getStatus();
+        return put(true, json, compress, description, listener);
+    }
+
+    @Nullable
+    private Call put(boolean batch, String json, boolean compress, String description, Listener listener) {
+        String url = settingsManager.getUrl();
+        String authKey = settingsManager.getAuthKey();
+
+        if (url == null || url.isEmpty() || authKey == null || authKey.isEmpty()) {
+            Log.w(TAG, "Server URL or auth key not configured");
+            return null;
+        }
+
+        Request.Builder builder = new Request.Builder()
+                .url(batch ? batchUrl(url) : url)
+                .addHeader("Authorization", authKey);
+
+        ByteString body = ByteString.encodeUtf8(json);
+        ByteString compressed = compress ? gzip(body) : null;
+        if (compressed != null && compressed.size() < body.size()) {
+            builder.put(RequestBody.create(compressed, JSON)).addHeader("Content-Encoding", "gzip");
+        } else {
+            builder.put(RequestBody.create(body, JSON));
+        }
+
+        Request request;
+        try {
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Invalid server URL: " + url);
+            return null;
+        }
+
+        Call call = HttpClients.shared().newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                Log.e(TAG, "Failed to send status: " + e.getMessage());
+                listener.onFailure("Connection error");
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                int code = response.code();
+                response.close();
+
+                if (code >= 200 && code < 300) {
+                    Log.i(TAG, "Sent " + description);
+                    listener.onSuccess();
+                } else {
+                    Log.e(TAG, "Server returned error: " + code);
+                    listener.onFailure("Server error: " + code);
+                }
+            }
+        });
+
+        return call;
+    }
+
+    private static String batchUrl(String url) {
+        String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        return base + BATCH_SUFFIX;
+    }
+
+    /**
+     * @return the gzipped body, or {@code null} if compressing failed
+     */
+    @Nullable
+    private static ByteString gzip(ByteString body) {
+        Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.write(body);
+        } catch (IOException e) {
+            return null;
+        }
+        return buffer.readByteString();
+    }
+
+    public interface Listener {
+        void onSuccess();
+
+        void onFailure(String error);
+    }
+}
@@ -0,0 +1,97 @@
+package me.qwqdev.livestatus.service;
+
+import android.os.Handler;
+import me.qwqdev.livestatus.util.PackagePrefixTrie;
+
+/**
+ * Turns the raw stream of foreground window changes into settled app transitions.
+ * <p>
+ * A package has to stay in the foreground for the minimum dwell time before it is
+ * reported, so fast switching, notification shades and short-lived overlays never
+ * reach the sender. Going A to B and back to A before B settles emits nothing, and
+ * packages on the denylist are ignored outright. All calls must happen on the
+ * scheduler's thread.
+ */
+public class TransitionDebouncer {
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private final Runnable settleRunnable = this::settle;
+
+    private PackagePrefixTrie denylist;
+    private long minDwellMs;
+
+    private String candidatePackage;
+    private String settledPackage;
+
+    public TransitionDebouncer(Scheduler scheduler, PackagePrefixTrie denylist, long minDwellMs, Listener listener) {
+        this.scheduler = scheduler;
+        this.denylist = denylist;
+        this.minDwellMs = minDwellMs;
+        this.listener = listener;
+    }
+
+    public void configure(PackagePrefixTrie denylist, long minDwellMs) {
+        this.denylist = denylist;
+        this.minDwellMs = minDwellMs;
+    }
+
+    public boolean isDenied(String packageName) {
+        return denylist.matches(packageName);
+    }
+
+    public void onForegroundChanged(String packageName) {
+        if (packageName == null || denylist.matches(packageName) || packageName.equals(candidatePackage)) {
+            return;
+        }
+
+        scheduler.cancel(settleRunnable);
+        candidatePackage = packageName;
+
+        if (!packageName.equals(settledPackage)) {
+            scheduler.postDelayed(settleRunnable, minDwellMs);
+        }
+    }
+
+    public String getSettledPackage() {
+        return settledPackage;
+    }
+
+    public void reset() {
+        scheduler.cancel(settleRunnable);
+        candidatePackage = null;
+        settledPackage = null;
+    }
+
+    private void settle() {
+        if (candidatePackage == null || candidatePackage.equals(settledPackage)) {
+            return;
+        }
+
+        settledPackage = candidatePackage;
+        listener.onSettled(settledPackage);
+    }
+
+    public interface Scheduler {
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void cancel(Runnable runnable);
+
+        static Scheduler of(Handler handler) {
+            return new Scheduler() {
+                @Override
+                public void postDelayed(Runnable runnable, long delayMs) {
+                    handler.postDelayed(runnable, delayMs);
+                }
+
+                @Override
+                public void cancel(Runnable runnable) {
+                    handler.removeCallbacks(runnable);
+                }
+            };
+        }
+    }
+
+    public interface Listener {
+        void onSettled(String packageName);
+    }
+}
@@ -0,0 +1,19 @@
+package me.qwqdev.livestatus.util;
+
+/**
+ * How statuses get to the server.
+ */
+public enum DeliveryMode {
+    /**
+     * Foreground service with a wakelock, sending every transition and a periodic heartbeat.
+     */
+    REALTIME,
+
+    /**
+     * Transitions are buffered on the device and the newest one is delivered by a
+     * constrained job during maintenance windows, when the network is up or while
+     * charging. It does not keep the live page current: the server shows the
+     * delivered status as "last seen" at its capture time.
+     */
+    LOW_POWER
+}
@@ -0,0 +1,61 @@
+package me.qwqdev.livestatus.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Locale;
+
+/**
+ * Cumulative per-mode counters for comparing the energy and latency cost of
+ * {@link DeliveryMode#REALTIME} and {@link DeliveryMode#LOW_POWER}. Requests and
+ * time spent awake stand in for energy, the delay between capturing a transition
+ * and the server accepting it is the latency.
+ */
+public class DeliveryStats {
+    private static final String PREFS_NAME = "livestatus_delivery_stats";
+    private static final String KEY_REQUESTS = "_requests";
+    private static final String KEY_TRANSITIONS = "_transitions";
+    private static final String KEY_LATENCY_MS = "_latency_ms";
+    private static final String KEY_AWAKE_MS = "_awake_ms";
+
+    private final SharedPreferences prefs;
+
+    public DeliveryStats(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Records one successful request delivering {@code transitions} statuses whose
+     * capture-to-delivery delays add up to {@code totalLatencyMs}.
+     */
+    public synchronized void recordDelivery(DeliveryMode mode, int transitions, long totalLatencyMs) {
+        prefs.edit()
+                .putLong(key(mode, KEY_REQUESTS), get(mode, KEY_REQUESTS) + 1)
+                .putLong(key(mode, KEY_TRANSITIONS), get(mode, KEY_TRANSITIONS) + transitions)
+                .putLong(key(mode, KEY_LATENCY_MS), get(mode, KEY_LATENCY_MS) + totalLatencyMs)
+                .apply();
+    }
+
+    public synchronized void recordAwakeTime(DeliveryMode mode, long awakeMs) {
+        prefs.edit()
+                .putLong(key(mode, KEY_AWAKE_MS), get(mode, KEY_AWAKE_MS) + awakeMs)
+                .apply();
+    }
+
+    public String summarize(DeliveryMode mode) {
+        long requests = get(mode, KEY_REQUESTS);
+        long transitions = get(mode, KEY_TRANSITIONS);
+        long averageLatencyMs = transitions == 0 ? 0 : get(mode, KEY_LATENCY_MS) / transitions;
+
+        return String.format(Locale.US, "%d requests, %d transitions, avg latency %.1f s, awake %d min",
+                requests, transitions, averageLatencyMs / 1000.0, get(mode, KEY_AWAKE_MS) / 60_000L);
+    }
+
+    private long get(DeliveryMode mode, String suffix) {
+        return prefs.getLong(key(mode, suffix), 0L);
+    }
+
+    private static String key(DeliveryMode mode, String suffix) {
+        return mode.name().toLowerCase(Locale.US) + suffix;
+    }
+}
@@ -0,0 +1,144 @@
+package me.qwqdev.livestatus.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.qwqdev.livestatus.model.Status;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the server's {@code /api/status/stream} Server-Sent Events endpoint and
+ * delivers every published device list on the main thread. Reconnects after a delay
+ * when the stream drops, until {@link #stop()} is called.
+ */
+public class FleetStatusStream {
+    private static final String TAG = "FleetStatusStream";
+    private static final String STREAM_SUFFIX = "/stream";
+    private static final String STATUS_EVENT = "status";
+    private static final long RECONNECT_DELAY_MS = 5000L;
+
+    private final OkHttpClient httpClient;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    private final Listener listener;
+    private final Runnable reconnectRunnable = this::connect;
+
+    private String streamUrl;
+    private EventSource eventSource;
+    private boolean running = false;
+
+    public FleetStatusStream(Listener listener) {
+        this.listener = listener;
+        // The server sends keep-alive comments every 15 seconds, so a silent stream is a dead one.
+        this.httpClient = HttpClients.shared().newBuilder()
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @param statusUrl the configured {@code /api/status} endpoint
+     */
+    public void start(String statusUrl) {
+        stop();
+
+        String base = statusUrl.endsWith("/") ? statusUrl.substring(0, statusUrl.length() - 1) : statusUrl;
+        streamUrl = base + STREAM_SUFFIX;
+        running = true;
+        connect();
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(reconnectRunnable);
+        if (eventSource != null) {
+            eventSource.cancel();
+            eventSource = null;
+        }
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+
+        Request request;
+        try {
+            request = new Request.Builder()
+                    .url(streamUrl)
+                    .header("Accept", "text/event-stream")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Invalid stream URL: " + streamUrl);
+            listener.onDisconnected();
+            return;
+        }
+
+        eventSource = EventSources.createFactory(httpClient).newEventSource(request, new EventSourceListener() {
+            @Override
+            public void onEvent(@NotNull EventSource source, @Nullable String id, @Nullable String type, @NotNull String data) {
+                if (type != null && !STATUS_EVENT.equals(type)) {
+                    return;
+                }
+
+                List<Status> statuses = parse(data);
+                handler.post(() -> {
+                    if (running && source == eventSource) {
+                        listener.onFleetUpdate(statuses);
+                    }
+                });
+            }
+
+            @Override
+            public void onClosed(@NotNull EventSource source) {
+                handler.post(() -> scheduleReconnect(source));
+            }
+
+            @Override
+            public void onFailure(@NotNull EventSource source, @Nullable Throwable t, @Nullable Response response) {
+                Log.w(TAG, "Fleet stream failed: " + (t != null ? t.getMessage() : response));
+                handler.post(() -> scheduleReconnect(source));
+            }
+        });
+    }
+
+    private void scheduleReconnect(EventSource source) {
+        if (!running || source != eventSource) {
+            return;
+        }
+
+        eventSource = null;
+        listener.onDisconnected();
+        handler.removeCallbacks(reconnectRunnable);
+        handler.postDelayed(reconnectRunnable, RECONNECT_DELAY_MS);
+    }
+
+    private List<Status> parse(String data) {
+        try {
+            Status[] statuses = gson.fromJson(data, Status[].class);
+            return statuses == null ? Collections.emptyList() : Arrays.asList(statuses);
+        } catch (JsonParseException e) {
+            Log.w(TAG, "Malformed fleet update: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    public interface Listener {
+        void onFleetUpdate(List<Status> statuses);
+
+        void onDisconnected();
+    }
+}
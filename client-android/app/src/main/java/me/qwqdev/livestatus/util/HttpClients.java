@@ -0,0 +1,24 @@
+package me.qwqdev.livestatus.util;
+
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The app's one {@link OkHttpClient}. Callers that need other timeouts derive a
+ * client with {@code newBuilder()}, which keeps the shared connection pool and dispatcher.
+ */
+public final class HttpClients {
+    private static final OkHttpClient SHARED = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .writeTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .build();
+
+    private HttpClients() {
+    }
+
+    public static OkHttpClient shared() {
+        return SHARED;
+    }
+}
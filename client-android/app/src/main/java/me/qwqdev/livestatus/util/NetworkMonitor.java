@@ -0,0 +1,112 @@
+package me.qwqdev.livestatus.util;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * Follows the default network through {@link ConnectivityManager.NetworkCallback}
+ * and reports availability changes on the handler's thread, so callers can stop
+ * issuing requests while offline instead of waiting for them to time out.
+ */
+public class NetworkMonitor {
+    private static final String TAG = "NetworkMonitor";
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private final Listener listener;
+
+    private Network currentNetwork;
+    private boolean online = true;
+    private boolean metered = false;
+    private boolean registered = false;
+
+    private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            handler.post(() -> {
+                boolean wasOnline = online;
+                currentNetwork = network;
+                online = true;
+                if (!wasOnline) {
+                    listener.onNetworkAvailable();
+                }
+            });
+        }
+
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            boolean notMetered = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            handler.post(() -> {
+                if (network.equals(currentNetwork)) {
+                    metered = !notMetered;
+                }
+            });
+        }
+
+        @Override
+        public void onLost(Network network) {
+            handler.post(() -> {
+                if (network.equals(currentNetwork)) {
+                    currentNetwork = null;
+                    online = false;
+                    listener.onNetworkLost();
+                }
+            });
+        }
+    };
+
+    public NetworkMonitor(Context context, Handler handler, Listener listener) {
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    public void start() {
+        if (connectivityManager == null || registered) {
+            return;
+        }
+
+        currentNetwork = connectivityManager.getActiveNetwork();
+        online = currentNetwork != null;
+        metered = connectivityManager.isActiveNetworkMetered();
+
+        try {
+            connectivityManager.registerDefaultNetworkCallback(callback);
+            registered = true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to register network callback: " + e.getMessage());
+            online = true;
+        }
+    }
+
+    public void stop() {
+        if (!registered) {
+            return;
+        }
+
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+        } catch (IllegalArgumentException ignored) {
+            // ignored
+        }
+        registered = false;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    public interface Listener {
+        void onNetworkAvailable();
+
+        void onNetworkLost();
+    }
+}
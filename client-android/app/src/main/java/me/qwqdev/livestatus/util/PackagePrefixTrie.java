@@ -0,0 +1,67 @@
+package me.qwqdev.livestatus.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of package name prefixes, compiled once and matched in time
+ * proportional to the package name rather than the number of prefixes.
+ * <p>
+ * Prefixes only match on whole name segments: {@code com.android.systemui}
+ * matches itself and {@code com.android.systemui.plugin}, but not
+ * {@code com.android.systemuitools}.
+ */
+public final class PackagePrefixTrie {
+    private final Node root;
+
+    private PackagePrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PackagePrefixTrie compile(Collection<String> prefixes) {
+        Node root = new Node();
+
+        for (String prefix : prefixes) {
+            String trimmed = prefix == null ? "" : prefix.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            Node node = root;
+            for (int i = 0; i < trimmed.length(); i++) {
+                node = node.children.computeIfAbsent(trimmed.charAt(i), c -> new Node());
+            }
+            node.terminal = true;
+        }
+
+        return new PackagePrefixTrie(root);
+    }
+
+    public boolean matches(String packageName) {
+        if (packageName == null) {
+            return false;
+        }
+
+        Node node = root;
+        int length = packageName.length();
+
+        for (int i = 0; i < length; i++) {
+            node = node.children.get(packageName.charAt(i));
+            if (node == null) {
+                return false;
+            }
+
+            if (node.terminal && (i + 1 == length || packageName.charAt(i + 1) == '.')) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private boolean terminal;
+    }
+}
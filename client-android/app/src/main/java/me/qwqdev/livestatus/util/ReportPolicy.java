@@ -0,0 +1,21 @@
+package me.qwqdev.livestatus.util;
+
+/**
+ * How urgently transitions into an app are reported.
+ */
+public enum ReportPolicy {
+    /**
+     * Sent as soon as the app settles in the foreground.
+     */
+    IMMEDIATE,
+
+    /**
+     * Left for the next periodic heartbeat to pick up.
+     */
+    LAZY,
+
+    /**
+     * Never sent; a neutral {@code N/A} status is reported in its place.
+     */
+    NEVER
+}
@@ -0,0 +1,89 @@
+package me.qwqdev.livestatus.util;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiled per-app {@link ReportPolicy} table.
+ * <p>
+ * The source has one {@code key=policy} entry per line (commas also separate
+ * entries). A key is either an exact package name or a prefix ending in
+ * {@code .*}, which matches that package and everything under it. Exact names win
+ * over prefixes and longer prefixes over shorter ones. A lookup costs one hash
+ * probe per name segment, independent of how many entries the table has.
+ */
+public final class ReportPolicyTable {
+    private static final String TAG = "ReportPolicyTable";
+    private static final String PREFIX_SUFFIX = ".*";
+
+    private final Map<String, ReportPolicy> exact;
+    private final Map<String, ReportPolicy> prefixes;
+    private final ReportPolicy fallback;
+
+    private ReportPolicyTable(Map<String, ReportPolicy> exact, Map<String, ReportPolicy> prefixes, ReportPolicy fallback) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.fallback = fallback;
+    }
+
+    public static ReportPolicyTable compile(String source, ReportPolicy fallback) {
+        Map<String, ReportPolicy> exact = new HashMap<>();
+        Map<String, ReportPolicy> prefixes = new HashMap<>();
+
+        if (source != null) {
+            for (String entry : source.split("[\\n,]")) {
+                String trimmed = entry.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+
+                int separator = trimmed.indexOf('=');
+                ReportPolicy policy = separator > 0 ? parsePolicy(trimmed.substring(separator + 1)) : null;
+                if (policy == null) {
+                    Log.w(TAG, "Ignoring malformed policy entry: " + trimmed);
+                    continue;
+                }
+
+                String key = trimmed.substring(0, separator).trim();
+                if (key.endsWith(PREFIX_SUFFIX)) {
+                    prefixes.put(key.substring(0, key.length() - PREFIX_SUFFIX.length()), policy);
+                } else {
+                    exact.put(key, policy);
+                }
+            }
+        }
+
+        return new ReportPolicyTable(exact, prefixes, fallback);
+    }
+
+    public ReportPolicy lookup(String packageName) {
+        if (packageName == null) {
+            return fallback;
+        }
+
+        ReportPolicy policy = exact.get(packageName);
+        if (policy != null || prefixes.isEmpty()) {
+            return policy != null ? policy : fallback;
+        }
+
+        for (int end = packageName.length(); end > 0; end = packageName.lastIndexOf('.', end - 1)) {
+            policy = prefixes.get(packageName.substring(0, end));
+            if (policy != null) {
+                return policy;
+            }
+        }
+
+        return fallback;
+    }
+
+    private static ReportPolicy parsePolicy(String value) {
+        try {
+            return ReportPolicy.valueOf(value.trim().toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
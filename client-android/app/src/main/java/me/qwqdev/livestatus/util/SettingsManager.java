@@ -2,23 +2,65 @@ package me.qwqdev.livestatus.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Build;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
 
 public class SettingsManager {
     private static final String PREFS_NAME = "livestatus_settings";
+    // Kept apart from the settings and excluded from backups, so a restored or transferred phone gets its own ID.
+    private static final String DEVICE_PREFS_NAME = "livestatus_device";
     private static final String KEY_URL = "url";
     private static final String KEY_AUTH_KEY = "auth_key";
     private static final String KEY_UPDATE_INTERVAL = "update_interval_secs";
     private static final String KEY_SERVICE_ENABLED = "service_enabled";
+    private static final String KEY_DEVICE_ID = "device_id";
+    private static final String KEY_DEVICE_NAME = "device_name";
+    private static final String KEY_MIN_DWELL_MS = "min_dwell_ms";
+    private static final String KEY_NOTIFICATION_INTERVAL = "notification_interval_secs";
+    private static final String KEY_DELIVERY_MODE = "delivery_mode";
+    private static final String KEY_REPORT_POLICIES = "report_policies";
+    private static final String KEY_PACKAGE_DENYLIST = "package_denylist";
 
     private static final String DEFAULT_URL = "http://127.0.0.1:1239/api/status";
     private static final String DEFAULT_AUTH_KEY = "";
     private static final int DEFAULT_UPDATE_INTERVAL = 5;
     private static final boolean DEFAULT_SERVICE_ENABLED = false;
+    private static final long DEFAULT_MIN_DWELL_MS = 1500L;
+    private static final int DEFAULT_NOTIFICATION_INTERVAL = 10;
+    private static final DeliveryMode DEFAULT_DELIVERY_MODE = DeliveryMode.REALTIME;
+    private static final ReportPolicy DEFAULT_REPORT_POLICY = ReportPolicy.IMMEDIATE;
+    private static final String DEFAULT_REPORT_POLICIES = String.join("\n",
+            "com.android.launcher3=lazy",
+            "com.google.android.apps.nexuslauncher=lazy",
+            "com.sec.android.app.launcher=lazy",
+            "com.miui.home=lazy",
+            "com.android.settings=lazy"
+    );
+
+    private static final Set<String> DEFAULT_PACKAGE_DENYLIST = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "android",
+            "com.android.systemui",
+            "com.android.inputmethod",
+            "com.google.android.inputmethod",
+            "com.samsung.android.honeyboard",
+            "com.android.permissioncontroller",
+            "com.google.android.permissioncontroller"
+    )));
+
+    private static String compiledPoliciesSource;
+    private static ReportPolicyTable compiledPolicies;
 
     private final SharedPreferences prefs;
+    private final SharedPreferences devicePrefs;
 
     public SettingsManager(Context context) {
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.devicePrefs = context.getSharedPreferences(DEVICE_PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     public String getUrl() {
@@ -53,6 +95,133 @@ public class SettingsManager {
         prefs.edit().putBoolean(KEY_SERVICE_ENABLED, enabled).apply();
     }
 
+    /**
+     * Stable per-install identifier, generated on first use, so several phones
+     * reporting to the same server are tracked as separate devices.
+     */
+    public String getDeviceId() {
+        // Every component has its own SettingsManager, so guard first use process-wide.
+        synchronized (SettingsManager.class) {
+            String deviceId = devicePrefs.getString(KEY_DEVICE_ID, null);
+            if (deviceId == null || deviceId.isEmpty()) {
+                deviceId = UUID.randomUUID().toString();
+                devicePrefs.edit().putString(KEY_DEVICE_ID, deviceId).commit();
+                // Older builds kept the ID with the backed-up settings, where it may have come from another phone.
+                if (prefs.contains(KEY_DEVICE_ID)) {
+                    prefs.edit().remove(KEY_DEVICE_ID).apply();
+                }
+            }
+            return deviceId;
+        }
+    }
+
+    public String getDeviceName() {
+        String name = prefs.getString(KEY_DEVICE_NAME, null);
+        return name == null || name.isEmpty() ? getDefaultDeviceName() : name;
+    }
+
+    public void setDeviceName(String name) {
+        prefs.edit().putString(KEY_DEVICE_NAME, name).apply();
+    }
+
+    public static String getDefaultDeviceName() {
+        String manufacturer = Build.MANUFACTURER;
+        String model = Build.MODEL;
+        if (model == null || model.isEmpty()) {
+            return "Android";
+        }
+        if (manufacturer == null || model.toLowerCase().startsWith(manufacturer.toLowerCase())) {
+            return model;
+        }
+        return manufacturer + " " + model;
+    }
+
+    /**
+     * Raw per-app policy table, see {@link ReportPolicyTable} for the format.
+     */
+    public String getReportPolicies() {
+        return prefs.getString(KEY_REPORT_POLICIES, DEFAULT_REPORT_POLICIES);
+    }
+
+    public void setReportPolicies(String policies) {
+        prefs.edit().putString(KEY_REPORT_POLICIES, policies).apply();
+    }
+
+    /**
+     * Compiled form of {@link #getReportPolicies()}, rebuilt only when the table changes.
+     */
+    public ReportPolicyTable getReportPolicyTable() {
+        String source = getReportPolicies();
+
+        synchronized (SettingsManager.class) {
+            if (compiledPolicies == null || !source.equals(compiledPoliciesSource)) {
+                compiledPolicies = ReportPolicyTable.compile(source, DEFAULT_REPORT_POLICY);
+                compiledPoliciesSource = source;
+            }
+            return compiledPolicies;
+        }
+    }
+
+    public DeliveryMode getDeliveryMode() {
+        String mode = prefs.getString(KEY_DELIVERY_MODE, DEFAULT_DELIVERY_MODE.name());
+        try {
+            return DeliveryMode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_DELIVERY_MODE;
+        }
+    }
+
+    public void setDeliveryMode(DeliveryMode mode) {
+        prefs.edit().putString(KEY_DELIVERY_MODE, mode.name()).apply();
+    }
+
+    /**
+     * Minimum time between two updates of the foreground notification.
+     */
+    public int getNotificationIntervalSecs() {
+        return prefs.getInt(KEY_NOTIFICATION_INTERVAL, DEFAULT_NOTIFICATION_INTERVAL);
+    }
+
+    public void setNotificationIntervalSecs(int seconds) {
+        prefs.edit().putInt(KEY_NOTIFICATION_INTERVAL, seconds).apply();
+    }
+
+    public long getMinDwellMs() {
+        return prefs.getLong(KEY_MIN_DWELL_MS, DEFAULT_MIN_DWELL_MS);
+    }
+
+    public void setMinDwellMs(long dwellMs) {
+        prefs.edit().putLong(KEY_MIN_DWELL_MS, dwellMs).apply();
+    }
+
+    /**
+     * Package name prefixes (system UI, keyboards, overlays) that never count as
+     * a foreground app change.
+     */
+    public Set<String> getPackageDenylist() {
+        return prefs.getStringSet(KEY_PACKAGE_DENYLIST, DEFAULT_PACKAGE_DENYLIST);
+    }
+
+    public void setPackageDenylist(Set<String> prefixes) {
+        prefs.edit().putStringSet(KEY_PACKAGE_DENYLIST, new HashSet<>(prefixes)).apply();
+    }
+
+    /**
+     * Whether a changed preference key affects the transition debouncer, i.e. the
+     * package denylist or the minimum dwell time.
+     */
+    public static boolean isDebouncerKey(String key) {
+        return KEY_PACKAGE_DENYLIST.equals(key) || KEY_MIN_DWELL_MS.equals(key);
+    }
+
+    public void registerOnChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    public void unregisterOnChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        prefs.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+
     public boolean isConfigured() {
         String url = getUrl();
         String key = getAuthKey();
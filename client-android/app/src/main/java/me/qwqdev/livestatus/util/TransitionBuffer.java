@@ -0,0 +1,147 @@
+package me.qwqdev.livestatus.util;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.qwqdev.livestatus.model.BufferedTransition;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transitions captured in low-power mode and not yet delivered, kept in memory
+ * and mirrored to a file so they survive the process being killed between jobs.
+ * <p>
+ * New entries are appended to the file as single lines. The file is only rewritten
+ * when entries are discarded or cleared, or once evictions left it twice as long as
+ * the buffer. All file writes run in order on one background thread.
+ */
+public final class TransitionBuffer {
+    private static final String TAG = "TransitionBuffer";
+    private static final String FILE_NAME = "pending_transitions.jsonl";
+    private static final int MAX_ENTRIES = 500;
+
+    private static TransitionBuffer instance;
+
+    private final File file;
+    private final Gson gson = new Gson();
+    private final ArrayDeque<BufferedTransition> entries = new ArrayDeque<>();
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private int fileLines;
+
+    private TransitionBuffer(File file) {
+        this.file = file;
+        load();
+    }
+
+    public static synchronized TransitionBuffer get(Context context) {
+        if (instance == null) {
+            instance = new TransitionBuffer(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    public synchronized void append(BufferedTransition transition) {
+        BufferedTransition last = entries.peekLast();
+        if (last != null && last.getStatus().equals(transition.getStatus())) {
+            return;
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.pollFirst();
+        }
+        entries.addLast(transition);
+
+        // Evicted lines stay in the file until the next rewrite; load() only keeps the newest entries anyway.
+        if (fileLines >= MAX_ENTRIES * 2) {
+            rewrite();
+        } else {
+            fileLines++;
+            io.execute(() -> write(Collections.singletonList(transition), true));
+        }
+    }
+
+    /**
+     * @return a copy of everything buffered, oldest first
+     */
+    public synchronized List<BufferedTransition> snapshot() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Drops delivered entries from the head of the buffer. Entries evicted in the
+     * meantime are skipped rather than counted.
+     */
+    public synchronized void discard(List<BufferedTransition> delivered) {
+        for (BufferedTransition transition : delivered) {
+            if (entries.peekFirst() == transition) {
+                entries.pollFirst();
+            }
+        }
+        rewrite();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        rewrite();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                fileLines++;
+                BufferedTransition transition = gson.fromJson(line, BufferedTransition.class);
+                if (transition != null && transition.getStatus() != null) {
+                    entries.addLast(transition);
+                }
+            }
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Failed to load buffered transitions: " + e.getMessage());
+        }
+
+        while (entries.size() > MAX_ENTRIES) {
+            entries.pollFirst();
+        }
+    }
+
+    private void rewrite() {
+        List<BufferedTransition> copy = new ArrayList<>(entries);
+        fileLines = copy.size();
+        io.execute(() -> write(copy, false));
+    }
+
+    private void write(List<BufferedTransition> transitions, boolean append) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, append))) {
+            for (BufferedTransition transition : transitions) {
+                writer.write(gson.toJson(transition));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to persist buffered transitions: " + e.getMessage());
+        }
+    }
+}
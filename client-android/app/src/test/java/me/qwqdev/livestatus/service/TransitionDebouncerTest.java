@@ -0,0 +1,156 @@
+package me.qwqdev.livestatus.service;
+
+import me.qwqdev.livestatus.util.PackagePrefixTrie;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransitionDebouncerTest {
+    private static final long DWELL_MS = 500L;
+
+    private FakeScheduler scheduler;
+    private List<String> settled;
+    private TransitionDebouncer debouncer;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        settled = new ArrayList<>();
+        debouncer = new TransitionDebouncer(
+                scheduler,
+                PackagePrefixTrie.compile(Collections.singletonList("com.android.systemui")),
+                DWELL_MS,
+                settled::add
+        );
+    }
+
+    @Test
+    public void settlesAfterDwellTime() {
+        debouncer.onForegroundChanged("com.example.a");
+
+        scheduler.advance(DWELL_MS - 1);
+        assertTrue(settled.isEmpty());
+
+        scheduler.advance(1);
+        assertEquals(Collections.singletonList("com.example.a"), settled);
+        assertEquals("com.example.a", debouncer.getSettledPackage());
+    }
+
+    @Test
+    public void quickSwitchOnlySettlesLastPackage() {
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(100);
+        debouncer.onForegroundChanged("com.example.b");
+        scheduler.advance(DWELL_MS);
+
+        assertEquals(Collections.singletonList("com.example.b"), settled);
+    }
+
+    @Test
+    public void returningBeforeSettleEmitsNothing() {
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(DWELL_MS);
+        settled.clear();
+
+        debouncer.onForegroundChanged("com.example.b");
+        scheduler.advance(100);
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(DWELL_MS);
+
+        assertTrue(settled.isEmpty());
+        assertEquals("com.example.a", debouncer.getSettledPackage());
+    }
+
+    @Test
+    public void repeatedEventsDoNotRestartDwell() {
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(300);
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(200);
+
+        assertEquals(Collections.singletonList("com.example.a"), settled);
+    }
+
+    @Test
+    public void deniedPackagesAreIgnored() {
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(100);
+        debouncer.onForegroundChanged("com.android.systemui");
+        scheduler.advance(DWELL_MS);
+
+        assertEquals(Collections.singletonList("com.example.a"), settled);
+        assertTrue(debouncer.isDenied("com.android.systemui.plugin"));
+        assertFalse(debouncer.isDenied("com.android.systemuitools"));
+    }
+
+    @Test
+    public void configureAppliesNewDenylistAndDwell() {
+        debouncer.configure(PackagePrefixTrie.compile(Collections.singletonList("com.example.a")), 50L);
+
+        debouncer.onForegroundChanged("com.example.a");
+        debouncer.onForegroundChanged("com.example.b");
+        scheduler.advance(50);
+
+        assertEquals(Collections.singletonList("com.example.b"), settled);
+    }
+
+    @Test
+    public void resetDropsPendingAndSettledPackage() {
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(DWELL_MS);
+        debouncer.onForegroundChanged("com.example.b");
+        debouncer.reset();
+        scheduler.advance(DWELL_MS);
+
+        assertEquals(Collections.singletonList("com.example.a"), settled);
+        assertNull(debouncer.getSettledPackage());
+
+        debouncer.onForegroundChanged("com.example.a");
+        scheduler.advance(DWELL_MS);
+        assertEquals(2, settled.size());
+    }
+
+    private static final class FakeScheduler implements TransitionDebouncer.Scheduler {
+        private final List<Task> tasks = new ArrayList<>();
+        private long now = 0L;
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            tasks.add(new Task(runnable, now + delayMs));
+        }
+
+        @Override
+        public void cancel(Runnable runnable) {
+            tasks.removeIf(task -> task.runnable == runnable);
+        }
+
+        void advance(long ms) {
+            now += ms;
+            List<Task> due = new ArrayList<>();
+            for (Task task : tasks) {
+                if (task.runAt <= now) {
+                    due.add(task);
+                }
+            }
+            tasks.removeAll(due);
+            for (Task task : due) {
+                task.runnable.run();
+            }
+        }
+    }
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final long runAt;
+
+        private Task(Runnable runnable, long runAt) {
+            this.runnable = runnable;
+            this.runAt = runAt;
+        }
+    }
+}
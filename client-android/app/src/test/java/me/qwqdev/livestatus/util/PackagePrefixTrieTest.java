@@ -0,0 +1,51 @@
+package me.qwqdev.livestatus.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PackagePrefixTrieTest {
+    private final PackagePrefixTrie trie = PackagePrefixTrie.compile(Arrays.asList(
+            "com.android.systemui",
+            "  com.google.android.inputmethod  ",
+            "",
+            null
+    ));
+
+    @Test
+    public void matchesExactPackage() {
+        assertTrue(trie.matches("com.android.systemui"));
+        assertTrue(trie.matches("com.google.android.inputmethod"));
+    }
+
+    @Test
+    public void matchesSubPackage() {
+        assertTrue(trie.matches("com.android.systemui.plugin"));
+        assertTrue(trie.matches("com.google.android.inputmethod.latin"));
+    }
+
+    @Test
+    public void doesNotMatchAcrossSegmentBoundary() {
+        assertFalse(trie.matches("com.android.systemuitools"));
+        assertFalse(trie.matches("com.google.android.inputmethodx"));
+    }
+
+    @Test
+    public void doesNotMatchShorterOrUnrelatedPackages() {
+        assertFalse(trie.matches("com.android"));
+        assertFalse(trie.matches("com.android.settings"));
+        assertFalse(trie.matches(""));
+        assertFalse(trie.matches(null));
+    }
+
+    @Test
+    public void blankPrefixesAreIgnored() {
+        PackagePrefixTrie empty = PackagePrefixTrie.compile(Arrays.asList("", " ", null));
+
+        assertFalse(empty.matches("com.example.app"));
+        assertFalse(PackagePrefixTrie.compile(Collections.emptyList()).matches("com.example.app"));
+    }
+}
@@ -0,0 +1,87 @@
+package me.qwqdev.livestatus.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReportPolicyTableTest {
+    @Test
+    public void exactEntryWinsOverPrefix() {
+        ReportPolicyTable table = ReportPolicyTable.compile(
+                "com.example.*=never\ncom.example.chat=immediate",
+                ReportPolicy.LAZY
+        );
+
+        assertEquals(ReportPolicy.IMMEDIATE, table.lookup("com.example.chat"));
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.bank"));
+    }
+
+    @Test
+    public void longerPrefixWinsOverShorter() {
+        ReportPolicyTable table = ReportPolicyTable.compile(
+                "com.example.*=never, com.example.games.*=lazy",
+                ReportPolicy.IMMEDIATE
+        );
+
+        assertEquals(ReportPolicy.LAZY, table.lookup("com.example.games.chess"));
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.mail"));
+    }
+
+    @Test
+    public void prefixMatchesBarePackage() {
+        ReportPolicyTable table = ReportPolicyTable.compile("com.example.bank.*=never", ReportPolicy.IMMEDIATE);
+
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.bank"));
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.bank.auth"));
+    }
+
+    @Test
+    public void prefixOnlyMatchesWholeSegments() {
+        ReportPolicyTable table = ReportPolicyTable.compile("com.example.bank.*=never", ReportPolicy.IMMEDIATE);
+
+        assertEquals(ReportPolicy.IMMEDIATE, table.lookup("com.example.banking"));
+        assertEquals(ReportPolicy.IMMEDIATE, table.lookup("com.example"));
+    }
+
+    @Test
+    public void exactEntryDoesNotMatchSubPackages() {
+        ReportPolicyTable table = ReportPolicyTable.compile("com.example.chat=never", ReportPolicy.IMMEDIATE);
+
+        assertEquals(ReportPolicy.IMMEDIATE, table.lookup("com.example.chat.widget"));
+    }
+
+    @Test
+    public void policyNamesAreCaseInsensitiveAndTrimmed() {
+        ReportPolicyTable table = ReportPolicyTable.compile("  com.example.chat =  Never  ", ReportPolicy.IMMEDIATE);
+
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.chat"));
+    }
+
+    @Test
+    public void malformedEntriesAndCommentsAreSkipped() {
+        ReportPolicyTable table = ReportPolicyTable.compile(String.join("\n",
+                "# launchers are not interesting",
+                "com.example.launcher=lazy",
+                "com.example.nopolicy",
+                "=never",
+                "com.example.typo=sometimes",
+                "",
+                "com.example.chat=immediate"
+        ), ReportPolicy.NEVER);
+
+        assertEquals(ReportPolicy.LAZY, table.lookup("com.example.launcher"));
+        assertEquals(ReportPolicy.IMMEDIATE, table.lookup("com.example.chat"));
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.nopolicy"));
+        assertEquals(ReportPolicy.NEVER, table.lookup("com.example.typo"));
+    }
+
+    @Test
+    public void fallsBackWhenNothingMatches() {
+        ReportPolicyTable table = ReportPolicyTable.compile("com.example.*=never", ReportPolicy.LAZY);
+
+        assertEquals(ReportPolicy.LAZY, table.lookup("org.other.app"));
+        assertEquals(ReportPolicy.LAZY, table.lookup(null));
+        assertEquals(ReportPolicy.LAZY, ReportPolicyTable.compile(null, ReportPolicy.LAZY).lookup("com.example"));
+        assertEquals(ReportPolicy.LAZY, ReportPolicyTable.compile("", ReportPolicy.LAZY).lookup("com.example"));
+    }
+}
@@ -8,8 +8,23 @@ interface StatusData {
   title: string;
   os_name?: string;
   force_status_type?: string;
+  device_id?: string;
+  device_name?: string;
+  last_seen?: number;
 }
 
+const getDeviceKey = (status: StatusData): string => status.device_id || status.os_name || '';
+
+// Delayed statuses (e.g. from a low-power phone) are not live, so say how old they are.
+const formatLastSeen = (lastSeen: number, language: 'en' | 'zh'): string => {
+  const minutes = Math.max(1, Math.round((Date.now() - lastSeen) / 60000));
+  const hours = Math.floor(minutes / 60);
+  if (language === 'zh') {
+    return hours > 0 ? `${hours} 小时前在线` : `${minutes} 分钟前在线`;
+  }
+  return hours > 0 ? `Last seen ${hours} h ago` : `Last seen ${minutes} min ago`;
+};
+
 interface Particle {
   id: number;
   x: number;
@@ -567,7 +582,7 @@ const StatusPage = () => {
   const [hasFetched, setHasFetched] = useState(false);
 
   const [activeDeviceIndex, setActiveDeviceIndex] = useState(0);
-  const [activeOsName, setActiveOsName] = useState<string | null>(null);
+  const [activeDeviceKey, setActiveDeviceKey] = useState<string | null>(null);
   
   const [displayedStatus, setDisplayedStatus] = useState<StatusData | null>(null);
   const [displayedActivity, setDisplayedActivity] = useState<string | null>(null);
@@ -590,17 +605,17 @@ const StatusPage = () => {
   useEffect(() => {
     if (statuses.length === 0) return;
     
-    if (activeOsName) {
-        const newIndex = statuses.findIndex(s => s.os_name === activeOsName);
+    if (activeDeviceKey) {
+        const newIndex = statuses.findIndex(s => getDeviceKey(s) === activeDeviceKey);
         if (newIndex !== -1 && newIndex !== activeDeviceIndex) {
             setActiveDeviceIndex(newIndex);
         } else if (newIndex === -1) {
             const safeIndex = activeDeviceIndex >= statuses.length ? 0 : activeDeviceIndex;
             setActiveDeviceIndex(safeIndex);
-            setActiveOsName(statuses[safeIndex]?.os_name || null);
+            setActiveDeviceKey(statuses[safeIndex] ? getDeviceKey(statuses[safeIndex]) : null);
         }
     } else if (statuses.length > 0) {
-        setActiveOsName(statuses[0]?.os_name || null);
+        setActiveDeviceKey(statuses[0] ? getDeviceKey(statuses[0]) : null);
     }
   }, [statuses]);
 
@@ -693,7 +708,7 @@ const StatusPage = () => {
       setIsConnected(false);
       setStatuses([]);
       setActiveDeviceIndex(0);
-      setActiveOsName(null);
+      setActiveDeviceKey(null);
       setError(language === 'zh' ? '无法连接到状态服务' : 'Unable to connect to status service');
       setHasFetched(true);
       handleStatusUpdate(null, false, isFirstFetch);
@@ -721,7 +736,7 @@ const StatusPage = () => {
           return 50; 
         };
 
-        return getWeight(a) - getWeight(b);
+        return getWeight(a) - getWeight(b) || getDeviceKey(a).localeCompare(getDeviceKey(b));
       });
 
       setStatuses(data);
@@ -732,7 +747,7 @@ const StatusPage = () => {
 
       if (data.length === 0) {
           handleStatusUpdate(null, true, isFirstFetch);
-          setActiveOsName(null);
+          setActiveDeviceKey(null);
       }
 
     } catch {
@@ -763,7 +778,7 @@ const StatusPage = () => {
   const handleManualSwitch = (idx: number) => {
       setActiveDeviceIndex(idx);
       if (statuses[idx]) {
-          setActiveOsName(statuses[idx].os_name || null);
+          setActiveDeviceKey(getDeviceKey(statuses[idx]));
       }
   };
 
@@ -854,7 +869,7 @@ const StatusPage = () => {
 
             <div className="text-center z-20 space-y-4 mix-blend-screen">
               <h2 className="text-xs md:text-sm font-mono text-white/40 tracking-[0.3em] uppercase">
-                {t.using}
+                {displayedStatus?.last_seen ? formatLastSeen(displayedStatus.last_seen, language) : t.using}
               </h2>
               
               <h1 
@@ -908,9 +923,9 @@ const StatusPage = () => {
              )}
           
              <div className="flex items-center gap-4 text-[10px] text-white/20 font-medium uppercase tracking-widest">
-                {displayedStatus?.os_name && (
+                {displayedStatus && (displayedStatus.device_name || displayedStatus.os_name) && (
                     <span className="transition-opacity duration-300">
-                        {displayedStatus.os_name}
+                        {displayedStatus.device_name || displayedStatus.os_name}
                     </span>
                 )}
                 <span className="w-1 h-1 rounded-full bg-white/20" />
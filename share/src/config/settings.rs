@@ -13,6 +13,10 @@ pub struct ServerSettings {
     pub host: String,
     pub key: String,
     pub timeout_secs: u64,
+    /// How long a status that arrived after `timeout_secs` had passed, e.g. from a
+    /// low-power client's batch, stays listed as "last seen".
+    #[serde(default = "default_last_seen_secs")]
+    pub last_seen_secs: u64,
 
     #[serde(default = "Vec::new")]
     pub filter_rule: Vec<FilterRule>,
@@ -34,7 +38,12 @@ impl Default for ServerSettings {
             host: "127.0.0.1:1239".to_string(),
             key: " ".to_string(),
             timeout_secs: 20,
+            last_seen_secs: default_last_seen_secs(),
             filter_rule: Vec::new(),
         }
     }
 }
+
+fn default_last_seen_secs() -> u64 {
+    3600
+}
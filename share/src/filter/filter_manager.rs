@@ -7,6 +7,7 @@ pub fn filter_status(original_status: &Status) -> Status {
     filtered_status.title = filter_text(&original_status.title);
     filtered_status.app_name = filter_text(&original_status.app_name);
     filtered_status.os_name = filter_text(&original_status.os_name);
+    filtered_status.device_name = filter_text(&original_status.device_name);
 
     filtered_status
 }
@@ -1,11 +1,16 @@
 use serde::{Deserialize, Serialize};
 
-#[derive(Debug, Serialize, Deserialize, Clone)]
+#[derive(Debug, Serialize, Deserialize, Clone, PartialEq, Eq)]
 pub struct Status {
     pub title: String,
     pub app_name: String,
     pub os_name: String,
     pub force_status_type: String,
+
+    #[serde(default)]
+    pub device_id: String,
+    #[serde(default)]
+    pub device_name: String,
 }
 
 impl Status {
@@ -15,6 +20,8 @@ impl Status {
             app_name,
             os_name: std::env::consts::OS.to_string(),
             force_status_type: "N/A".to_string(),
+            device_id: String::new(),
+            device_name: String::new(),
         }
     }
 
@@ -24,6 +31,8 @@ impl Status {
             app_name,
             os_name,
             force_status_type: "N/A".to_string(),
+            device_id: String::new(),
+            device_name: String::new(),
         }
     }
 
@@ -37,6 +46,18 @@ impl Status {
             app_name,
             os_name: std::env::consts::OS.to_string(),
             force_status_type,
+            device_id: String::new(),
+            device_name: String::new(),
+        }
+    }
+
+    /// Key used to tell reporting devices apart. Clients that predate per-install
+    /// device IDs fall back to their OS name, which keeps the old one-device-per-OS behaviour.
+    pub fn device_key(&self) -> &str {
+        if self.device_id.is_empty() {
+            &self.os_name
+        } else {
+            &self.device_id
         }
     }
 
@@ -50,6 +71,8 @@ impl Status {
             app_name: "Offline".to_string(),
             os_name: "Offline".to_string(),
             force_status_type: "N/A".to_string(),
+            device_id: String::new(),
+            device_name: String::new(),
         }
     }
 }